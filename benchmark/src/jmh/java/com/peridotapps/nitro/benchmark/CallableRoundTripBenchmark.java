@@ -0,0 +1,54 @@
+package com.peridotapps.nitro.benchmark;
+
+import com.peridotapps.nitro.concurrent.task.CallableTask;
+import com.peridotapps.nitro.concurrent.task.TaskMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CallableRoundTripBenchmark {
+
+    @Param({"COMPUTE", "BLOCKING", "MAIN"})
+    public TaskMode mode;
+
+    @Benchmark
+    public Integer futureRoundTrip() throws ExecutionException, InterruptedException {
+        return new ValueTask(42).setTaskThreadMode(mode)
+                .getFuture()
+                .get();
+    }
+
+    @Benchmark
+    public Integer composedRoundTrip() throws ExecutionException, InterruptedException {
+        return new ValueTask(1).setTaskThreadMode(mode)
+                .getFuture()
+                .thenCompose(value -> new ValueTask(value + 1).setTaskThreadMode(mode)
+                        .getFuture())
+                .get();
+    }
+
+    private static final class ValueTask extends CallableTask<Integer> {
+
+        private final int value;
+
+        ValueTask(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public Integer onRun() {
+            return value;
+        }
+    }
+}
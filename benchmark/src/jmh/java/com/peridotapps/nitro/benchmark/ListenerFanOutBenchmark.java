@@ -0,0 +1,69 @@
+package com.peridotapps.nitro.benchmark;
+
+import android.support.annotation.NonNull;
+
+import com.peridotapps.nitro.concurrent.task.RunnableTask;
+import com.peridotapps.nitro.concurrent.task.Task;
+import com.peridotapps.nitro.concurrent.task.TaskMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListenerFanOutBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int listenerCount;
+
+    @Param({"NEW", "MAIN"})
+    public TaskMode listenerThreadMode;
+
+    @Benchmark
+    public void notifyListeners() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(listenerCount);
+        RunnableTask task = RunnableTask.createActionRunnable(() -> {
+        }).setTaskThreadMode(TaskMode.COMPUTE)
+                .setListenerThreadMode(listenerThreadMode);
+
+        for (int index = 0; index < listenerCount; index++) {
+            task.addListener(new CountingListener(latch));
+        }
+
+        task.execute();
+        latch.await();
+    }
+
+    private static final class CountingListener implements Task.TaskListener {
+
+        @NonNull
+        private final CountDownLatch latch;
+
+        CountingListener(@NonNull CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void started() {
+        }
+
+        @Override
+        public void completed() {
+            latch.countDown();
+        }
+
+        @Override
+        public void failed(@NonNull Throwable t) {
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.peridotapps.nitro.benchmark;
+
+import com.peridotapps.nitro.data.PreferenceLibrary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PreferenceLibraryBenchmark {
+
+    @Param({"16", "256"})
+    public int preferenceCount;
+
+    private PreferenceLibrary library;
+
+    @Setup
+    public void setUp() {
+        library = new PreferenceLibrary.Builder().setIdentifier("benchmark." + preferenceCount)
+                .build();
+
+        for (int index = 0; index < preferenceCount; index++) {
+            library.applyPreference("key." + index, "value." + index);
+        }
+    }
+
+    @Benchmark
+    public String readCachedPreference() {
+        return library.getPreference("key.0", "fallback");
+    }
+
+    @Benchmark
+    public String readMissingPreference() {
+        return library.getPreference("missing", "fallback");
+    }
+}
@@ -0,0 +1,44 @@
+package com.peridotapps.nitro.benchmark;
+
+import com.peridotapps.nitro.random.RandomString;
+import com.peridotapps.nitro.string.CharacterSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RandomStringBenchmark {
+
+    @Param({"16", "64", "256"})
+    public int length;
+
+    @Param({"ALPHA_NUMERIC", "NUMERIC"})
+    public CharacterSet characterSet;
+
+    private RandomString randomString;
+
+    @Setup
+    public void setUp() {
+        randomString = new RandomString(length, length, characterSet);
+    }
+
+    @Benchmark
+    public String generate() {
+        return randomString.generate();
+    }
+
+    @Benchmark
+    public String createAndGenerate() {
+        return new RandomString(length, length, characterSet).generate();
+    }
+}
@@ -0,0 +1,41 @@
+package com.peridotapps.nitro.benchmark;
+
+import com.peridotapps.nitro.concurrent.task.RunnableTask;
+import com.peridotapps.nitro.concurrent.task.TaskMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TaskSubmissionBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"COMPUTE", "BLOCKING", "MAIN"})
+    public TaskMode mode;
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void submitRunnableTasks() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+
+        for (int index = 0; index < BATCH_SIZE; index++) {
+            RunnableTask.createActionRunnable(latch::countDown)
+                    .setTaskThreadMode(mode)
+                    .execute();
+        }
+
+        latch.await();
+    }
+}
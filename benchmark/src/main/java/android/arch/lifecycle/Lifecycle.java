@@ -0,0 +1,16 @@
+package android.arch.lifecycle;
+
+public abstract class Lifecycle {
+
+    public abstract void addObserver(LifecycleObserver observer);
+
+    public enum Event {
+        ON_CREATE,
+        ON_START,
+        ON_RESUME,
+        ON_PAUSE,
+        ON_STOP,
+        ON_DESTROY,
+        ON_ANY
+    }
+}
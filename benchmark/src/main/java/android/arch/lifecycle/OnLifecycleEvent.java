@@ -0,0 +1,9 @@
+package android.arch.lifecycle;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OnLifecycleEvent {
+    Lifecycle.Event value();
+}
@@ -0,0 +1,21 @@
+package android.arch.lifecycle;
+
+// The benchmark process never reaches ON_DESTROY, so observers are accepted and ignored.
+public class ProcessLifecycleOwner {
+
+    private static final ProcessLifecycleOwner INSTANCE = new ProcessLifecycleOwner();
+
+    private final Lifecycle lifecycle = new Lifecycle() {
+        @Override
+        public void addObserver(LifecycleObserver observer) {
+        }
+    };
+
+    public static ProcessLifecycleOwner get() {
+        return INSTANCE;
+    }
+
+    public Lifecycle getLifecycle() {
+        return lifecycle;
+    }
+}
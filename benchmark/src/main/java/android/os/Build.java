@@ -0,0 +1,18 @@
+package android.os;
+
+public class Build {
+
+    public static class VERSION {
+        public static final int SDK_INT = VERSION_CODES.Q;
+    }
+
+    public static class VERSION_CODES {
+        public static final int JELLY_BEAN = 16;
+        public static final int JELLY_BEAN_MR1 = 17;
+        public static final int KITKAT = 19;
+        public static final int LOLLIPOP = 21;
+        public static final int M = 23;
+        public static final int N = 24;
+        public static final int Q = 29;
+    }
+}
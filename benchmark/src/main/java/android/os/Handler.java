@@ -0,0 +1,37 @@
+package android.os;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class Handler {
+
+    private static final ScheduledExecutorService DELAY_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "handler-delay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Looper looper;
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final boolean post(Runnable runnable) {
+        looper.enqueue(runnable);
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable runnable, long delayMillis) {
+        DELAY_EXECUTOR.schedule(() -> looper.enqueue(runnable), delayMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    public final boolean postAtFrontOfQueue(Runnable runnable) {
+        return post(runnable);
+    }
+
+    public final void removeCallbacks(Runnable runnable) {
+    }
+}
@@ -0,0 +1,49 @@
+package android.os;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// A single daemon thread stands in for the main looper so MAIN tasks still hop threads the way
+// they do on a device.
+public final class Looper {
+
+    private static final Looper MAIN_LOOPER = new Looper("main");
+
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+
+    private Looper(String name) {
+        this.thread = new Thread(this::loop, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN_LOOPER;
+    }
+
+    public static Looper myLooper() {
+        return (Thread.currentThread() == MAIN_LOOPER.thread) ? MAIN_LOOPER : null;
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    void enqueue(Runnable runnable) {
+        queue.offer(runnable);
+    }
+
+    private void loop() {
+        for (; ; ) {
+            try {
+                queue.take()
+                        .run();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package android.text;
+
+public class TextUtils {
+
+    public static boolean isEmpty(CharSequence text) {
+        return text == null || text.length() == 0;
+    }
+}
@@ -0,0 +1,25 @@
+package android.view;
+
+import android.os.Handler;
+import android.os.Looper;
+
+// Frame callbacks run on the next turn of the main looper rather than on a vsync, which keeps
+// MAIN lane benchmarks measuring dispatch cost instead of the display refresh rate.
+public final class Choreographer {
+
+    private static final Choreographer INSTANCE = new Choreographer();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    public static Choreographer getInstance() {
+        return INSTANCE;
+    }
+
+    public void postFrameCallback(FrameCallback callback) {
+        handler.post(() -> callback.doFrame(System.nanoTime()));
+    }
+
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+}
@@ -0,0 +1,128 @@
+package com.peridotapps.nitro;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Stands in for the real application class, which needs the Android framework. It only backs
+// PreferenceLibrary with in-memory preference files.
+public final class NitroApplication extends Context {
+
+    private static final NitroApplication INSTANCE = new NitroApplication();
+
+    private final ConcurrentHashMap<String, InMemoryPreferences> preferenceFiles = new ConcurrentHashMap<>();
+
+    private NitroApplication() {
+    }
+
+    public static NitroApplication getSharedInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        InMemoryPreferences preferences = preferenceFiles.get(name);
+        if (preferences == null) {
+            InMemoryPreferences created = new InMemoryPreferences();
+            preferences = preferenceFiles.putIfAbsent(name, created);
+            if (preferences == null) {
+                preferences = created;
+            }
+        }
+        return preferences;
+    }
+
+    private static final class InMemoryPreferences implements SharedPreferences {
+
+        private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+        // Like the framework implementation, getAll() hands out a fresh copy on every call.
+        @Override
+        public Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public Editor edit() {
+            return new InMemoryEditor();
+        }
+
+        private final class InMemoryEditor implements Editor {
+
+            private final Map<String, Object> pending = new HashMap<>();
+            private boolean clear = false;
+
+            @Override
+            public Editor putString(String key, String value) {
+                return put(key, value);
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                return put(key, values);
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                return put(key, value);
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                return put(key, value);
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                return put(key, value);
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                return put(key, value);
+            }
+
+            @Override
+            public Editor remove(String key) {
+                return put(key, this);
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                apply();
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                if (clear) {
+                    values.clear();
+                }
+
+                for (Map.Entry<String, Object> entry : pending.entrySet()) {
+                    if (entry.getValue() == this) {
+                        values.remove(entry.getKey());
+                    } else {
+                        values.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                pending.clear();
+            }
+
+            private Editor put(String key, Object value) {
+                pending.put(key, value);
+                return this;
+            }
+        }
+    }
+}
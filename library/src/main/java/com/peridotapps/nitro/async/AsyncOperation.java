@@ -3,12 +3,20 @@ package com.peridotapps.nitro.async;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.peridotapps.nitro.concurrent.task.CancellationToken;
+import com.peridotapps.nitro.concurrent.task.CoalescePolicy;
+import com.peridotapps.nitro.concurrent.task.DeadlinePolicy;
+import com.peridotapps.nitro.concurrent.task.RetryPolicy;
 import com.peridotapps.nitro.concurrent.task.RunnableTask;
 import com.peridotapps.nitro.concurrent.task.Task;
 import com.peridotapps.nitro.concurrent.task.TaskMode;
+import com.peridotapps.nitro.concurrent.task.TaskPriority;
+import com.peridotapps.nitro.concurrent.task.TaskResult;
+import com.peridotapps.nitro.concurrent.task.TaskState;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 public abstract class AsyncOperation<I, O> extends RunnableTask {
 
@@ -21,6 +29,12 @@ public abstract class AsyncOperation<I, O> extends RunnableTask {
     @Nullable
     private AsyncOperation<O, ?> nextTask;
 
+    @Nullable
+    private volatile CompletionObserver completionObserver = null;
+
+    @Nullable
+    private volatile AsyncOperation<?, O> coalescedInto = null;
+
     public AsyncOperation() {
         super();
     }
@@ -50,17 +64,64 @@ public abstract class AsyncOperation<I, O> extends RunnableTask {
     @Override
     public void onCompleted() {
         super.onCompleted();
+        notifyCompletionObserver(null);
         queueNextTask();
     }
 
+    @Override
+    public void onFailed(@NonNull Throwable t) {
+        super.onFailed(t);
+        notifyCompletionObserver(t);
+    }
+
+    // An operation folded into another pending submission never runs itself, so its result is
+    // read from the operation that actually executed.
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void onCoalesced(@NonNull RunnableTask survivor) {
+        if (survivor instanceof AsyncOperation) {
+            this.coalescedInto = (AsyncOperation<?, O>) survivor;
+        }
+    }
+
+    void setCompletionObserver(@Nullable CompletionObserver observer) {
+        this.completionObserver = observer;
+    }
+
+    private void notifyCompletionObserver(@Nullable Throwable t) {
+        CompletionObserver observer = completionObserver;
+        if (observer != null) {
+            if (t == null) {
+                observer.onOperationCompleted();
+            } else {
+                observer.onOperationFailed(t);
+            }
+        }
+    }
+
+    // This operation has already reported that it completed, so a lane refusing the next one
+    // fails only the next one. The rejection handler normally fails it already; a lane that throws
+    // without consulting the handler is covered here.
     private void queueNextTask() {
-        if (nextTask != null) {
-            nextTask.addProperties(this.getProperties())
-                    .setInput(getResult())
-                    .execute();
+        AsyncOperation<O, ?> next = nextTask;
+        if (next != null && !isCancelled()) {
+            try {
+                next.addProperties(this.getProperties())
+                        .setInput(getResult())
+                        .execute();
+            } catch (RejectedExecutionException e) {
+                if (next.getState() != TaskState.FAILED) {
+                    next.onFailed(e);
+                }
+            }
         }
     }
 
+    @NonNull
+    public final TaskResult<O> getFuture() {
+        return executeForResult().thenApply(ignored -> getResult());
+    }
+
     @NonNull
     public final AsyncOperation<I, O> setInput(@Nullable I input) {
         this.input = input;
@@ -80,6 +141,20 @@ public abstract class AsyncOperation<I, O> extends RunnableTask {
         return this;
     }
 
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> setCoalesceKey(@Nullable String key) {
+        super.setCoalesceKey(key);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> setCoalesceKey(@Nullable String key, @NonNull CoalescePolicy policy) {
+        super.setCoalesceKey(key, policy);
+        return this;
+    }
+
     @NonNull
     @Override
     public final AsyncOperation<I, O> setTaskThreadMode(@NonNull TaskMode mode) {
@@ -87,6 +162,55 @@ public abstract class AsyncOperation<I, O> extends RunnableTask {
         return this;
     }
 
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> setListenerThreadMode(@NonNull TaskMode mode) {
+        super.setListenerThreadMode(mode);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> setPriority(@NonNull TaskPriority priority) {
+        super.setPriority(priority);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> setDeadline(long deadlineInMilliseconds, @NonNull DeadlinePolicy policy) {
+        super.setDeadline(deadlineInMilliseconds, policy);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> clearDeadline() {
+        super.clearDeadline();
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> setCancellationToken(@Nullable CancellationToken token) {
+        super.setCancellationToken(token);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> setRetryPolicy(@Nullable RetryPolicy policy) {
+        super.setRetryPolicy(policy);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public final AsyncOperation<I, O> setStrand(@Nullable String key) {
+        super.setStrand(key);
+        return this;
+    }
+
     @NonNull
     @Override
     public final AsyncOperation<I, O> addProperty(@NonNull String key, Object value) {
@@ -122,6 +246,15 @@ public abstract class AsyncOperation<I, O> extends RunnableTask {
 
     @Nullable
     public O getResult() {
-        return result;
+        AsyncOperation<?, O> survivor = coalescedInto;
+        return (survivor != null) ? survivor.getResult() : result;
+    }
+
+    interface CompletionObserver {
+
+        void onOperationCompleted();
+
+        void onOperationFailed(@NonNull Throwable t);
+
     }
 }
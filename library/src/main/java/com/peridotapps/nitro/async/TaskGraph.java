@@ -0,0 +1,322 @@
+package com.peridotapps.nitro.async;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.peridotapps.nitro.concurrent.task.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class TaskGraph {
+
+    @NonNull
+    private final List<Node<?>> nodes = new ArrayList<>();
+
+    @NonNull
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    @NonNull
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+
+    @NonNull
+    private final AtomicInteger remainingNodes = new AtomicInteger(0);
+
+    @Nullable
+    private volatile Task.TaskListener graphListener = null;
+
+    public TaskGraph() {
+    }
+
+    @NonNull
+    public <O> Node<O> add(@NonNull AsyncOperation<?, O> operation) {
+        return register(new Node<>(this, operation, null));
+    }
+
+    @NonNull
+    public <I, O> Node<O> add(@NonNull AsyncOperation<I, O> operation, @NonNull Node<? extends I> upstream) {
+        checkMembership(upstream);
+        Node<O> node = new Node<>(this, operation, () -> operation.setInput(upstream.getResult()));
+        node.addDependency(upstream);
+        return register(node);
+    }
+
+    @NonNull
+    public <A, B, O> Node<O> join(@NonNull Node<? extends A> first, @NonNull Node<? extends B> second, @NonNull AsyncOperation<Pair<A, B>, O> operation) {
+        checkMembership(first);
+        checkMembership(second);
+        Node<O> node = new Node<>(this, operation, () -> operation.setInput(new Pair<A, B>(first.getResult(), second.getResult())));
+        node.addDependency(first);
+        node.addDependency(second);
+        return register(node);
+    }
+
+    @NonNull
+    public <T, O> Node<O> joinAll(@NonNull List<? extends Node<? extends T>> upstream, @NonNull AsyncOperation<List<T>, O> operation) {
+        List<Node<? extends T>> dependencies = new ArrayList<>(upstream);
+        Node<O> node = new Node<>(this, operation, () -> {
+            List<T> results = new ArrayList<>(dependencies.size());
+            for (Node<? extends T> dependency : dependencies) {
+                results.add(dependency.getResult());
+            }
+            operation.setInput(results);
+        });
+
+        for (Node<? extends T> dependency : dependencies) {
+            checkMembership(dependency);
+            node.addDependency(dependency);
+        }
+
+        return register(node);
+    }
+
+    public void execute() {
+        execute(null);
+    }
+
+    public void execute(@Nullable Task.TaskListener listener) {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("A task graph can only be executed once");
+        }
+
+        this.graphListener = listener;
+        this.remainingNodes.set(nodes.size());
+
+        if (listener != null) {
+            listener.started();
+        }
+
+        if (nodes.isEmpty()) {
+            notifyGraphCompleted();
+            return;
+        }
+
+        List<Node<?>> roots = new ArrayList<>();
+        for (Node<?> node : nodes) {
+            if (node.isReady()) {
+                roots.add(node);
+            }
+        }
+
+        for (Node<?> root : roots) {
+            root.start();
+        }
+    }
+
+    public void cancel() {
+        if (failed.compareAndSet(false, true)) {
+            cancelOperations();
+        }
+    }
+
+    public boolean isStarted() {
+        return started.get();
+    }
+
+    public boolean isFailed() {
+        return failed.get();
+    }
+
+    public boolean isCompleted() {
+        return started.get() && !failed.get() && remainingNodes.get() == 0;
+    }
+
+    @NonNull
+    public List<Node<?>> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    @NonNull
+    private <O> Node<O> register(@NonNull Node<O> node) {
+        checkNotStarted();
+        nodes.add(node);
+        return node;
+    }
+
+    private void checkNotStarted() {
+        if (started.get()) {
+            throw new IllegalStateException("Nodes cannot be added to a task graph once it has been executed");
+        }
+    }
+
+    private void checkMembership(@NonNull Node<?> node) {
+        if (node.graph != this) {
+            throw new IllegalArgumentException("Node " + node.operation.getTaskId() + " belongs to a different task graph");
+        }
+    }
+
+    private void onNodeCompleted() {
+        if (remainingNodes.decrementAndGet() == 0 && !failed.get()) {
+            notifyGraphCompleted();
+        }
+    }
+
+    private void onNodeFailed(@NonNull Throwable t) {
+        if (failed.compareAndSet(false, true)) {
+            cancelOperations();
+
+            Task.TaskListener listener = graphListener;
+            if (listener != null) {
+                listener.failed(t);
+            }
+        }
+    }
+
+    private void cancelOperations() {
+        for (Node<?> node : nodes) {
+            if (!node.finished.get()) {
+                node.operation.cancel();
+            }
+        }
+    }
+
+    private void notifyGraphCompleted() {
+        Task.TaskListener listener = graphListener;
+        if (listener != null) {
+            listener.completed();
+        }
+    }
+
+    public static final class Node<O> {
+
+        @NonNull
+        private final TaskGraph graph;
+
+        @NonNull
+        private final AsyncOperation<?, O> operation;
+
+        @Nullable
+        private final InputBinder inputBinder;
+
+        @NonNull
+        private final List<Node<?>> downstream = new ArrayList<>();
+
+        @NonNull
+        private final AtomicInteger pendingDependencies = new AtomicInteger(0);
+
+        @NonNull
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        private final int index;
+
+        private Node(@NonNull TaskGraph graph, @NonNull AsyncOperation<?, O> operation, @Nullable InputBinder inputBinder) {
+            this.graph = graph;
+            this.operation = operation;
+            this.inputBinder = inputBinder;
+            this.index = graph.nodes.size();
+        }
+
+        @NonNull
+        public Node<O> after(@NonNull Node<?>... upstream) {
+            graph.checkNotStarted();
+
+            for (Node<?> dependency : upstream) {
+                graph.checkMembership(dependency);
+                if (dependency.index >= this.index) {
+                    throw new IllegalArgumentException("Node " + operation.getTaskId() + " can only depend on nodes added before it");
+                }
+                addDependency(dependency);
+            }
+
+            return this;
+        }
+
+        @NonNull
+        public AsyncOperation<?, O> getOperation() {
+            return operation;
+        }
+
+        @Nullable
+        public O getResult() {
+            return operation.getResult();
+        }
+
+        public boolean isFinished() {
+            return finished.get();
+        }
+
+        private void addDependency(@NonNull Node<?> upstream) {
+            upstream.downstream.add(this);
+            pendingDependencies.incrementAndGet();
+        }
+
+        private boolean isReady() {
+            return pendingDependencies.get() == 0;
+        }
+
+        private void start() {
+            if (graph.failed.get()) {
+                return;
+            }
+
+            if (inputBinder != null) {
+                inputBinder.bind();
+            }
+
+            operation.setCompletionObserver(new AsyncOperation.CompletionObserver() {
+                @Override
+                public void onOperationCompleted() {
+                    onFinished(null);
+                }
+
+                @Override
+                public void onOperationFailed(@NonNull Throwable t) {
+                    onFinished(t);
+                }
+            });
+            operation.execute();
+        }
+
+        private void onFinished(@Nullable Throwable t) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+
+            operation.setCompletionObserver(null);
+
+            if (t != null) {
+                graph.onNodeFailed(t);
+                return;
+            }
+
+            for (Node<?> node : downstream) {
+                if (node.pendingDependencies.decrementAndGet() == 0) {
+                    node.start();
+                }
+            }
+
+            graph.onNodeCompleted();
+        }
+    }
+
+    public static final class Pair<A, B> {
+
+        @Nullable
+        private final A first;
+
+        @Nullable
+        private final B second;
+
+        public Pair(@Nullable A first, @Nullable B second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Nullable
+        public A getFirst() {
+            return first;
+        }
+
+        @Nullable
+        public B getSecond() {
+            return second;
+        }
+    }
+
+    private interface InputBinder {
+        void bind();
+    }
+}
@@ -1,13 +1,29 @@
 package com.peridotapps.nitro.concurrent;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.peridotapps.nitro.concurrent.task.RunnableTask;
+import com.peridotapps.nitro.concurrent.task.TaskManager;
 import com.peridotapps.nitro.concurrent.task.TaskMode;
+import com.peridotapps.nitro.concurrent.task.Timeout;
+import com.peridotapps.nitro.logging.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public final class ConcurrentHandler {
     private static ConcurrentHandler sharedInstance;
 
+    @NonNull
+    private final ConcurrentHashMap<String, Debouncer> debouncers = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final ConcurrentHashMap<String, Throttler> throttlers = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final ConcurrentHashMap<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
     @NonNull
     public static ConcurrentHandler getSharedInstance() {
         ConcurrentHandler instance;
@@ -46,4 +62,348 @@ public final class ConcurrentHandler {
                 .setTaskDelay(delay)
                 .execute();
     }
+
+    public final void debounce(@NonNull String key, @NonNull Runnable action, long window) {
+        debounce(key, action, window, TaskMode.NEW);
+    }
+
+    // Helpers retire themselves once idle so that dynamic keys do not accumulate; a caller that
+    // races a retirement simply registers a fresh helper for the key and tries again.
+    public final void debounce(@NonNull String key, @NonNull Runnable action, long window, @NonNull TaskMode mode) {
+        for (; ; ) {
+            Debouncer debouncer = debouncers.get(key);
+            if (debouncer == null) {
+                Debouncer created = new Debouncer(key);
+                debouncer = debouncers.putIfAbsent(key, created);
+                if (debouncer == null) {
+                    debouncer = created;
+                }
+            }
+
+            if (debouncer.submit(action, window, mode)) {
+                return;
+            }
+            debouncers.remove(key, debouncer);
+        }
+    }
+
+    public final void throttle(@NonNull String key, @NonNull Runnable action, long interval) {
+        throttle(key, action, interval, TaskMode.NEW);
+    }
+
+    public final void throttle(@NonNull String key, @NonNull Runnable action, long interval, @NonNull TaskMode mode) {
+        for (; ; ) {
+            Throttler throttler = throttlers.get(key);
+            if (throttler == null) {
+                Throttler created = new Throttler(key);
+                throttler = throttlers.putIfAbsent(key, created);
+                if (throttler == null) {
+                    throttler = created;
+                }
+            }
+
+            if (throttler.submit(action, interval, mode)) {
+                return;
+            }
+            throttlers.remove(key, throttler);
+        }
+    }
+
+    public final boolean rateLimit(@NonNull String key, @NonNull Runnable action, int permits, long period) {
+        return rateLimit(key, action, permits, period, TaskMode.NEW);
+    }
+
+    public final boolean rateLimit(@NonNull String key, @NonNull Runnable action, int permits, long period, @NonNull TaskMode mode) {
+        for (; ; ) {
+            RateLimiter rateLimiter = rateLimiters.get(key);
+            if (rateLimiter == null) {
+                RateLimiter created = new RateLimiter(key);
+                rateLimiter = rateLimiters.putIfAbsent(key, created);
+                if (rateLimiter == null) {
+                    rateLimiter = created;
+                }
+            }
+
+            switch (rateLimiter.tryAcquire(permits, period)) {
+                case RateLimiter.ACQUIRED:
+                    TaskManager.dispatch(() -> runAction(action), mode);
+                    return true;
+                case RateLimiter.DENIED:
+                    return false;
+                default:
+                    rateLimiters.remove(key, rateLimiter);
+                    break;
+            }
+        }
+    }
+
+    public final void cancel(@NonNull String key) {
+        Debouncer debouncer = debouncers.remove(key);
+        if (debouncer != null) {
+            debouncer.cancel();
+        }
+
+        Throttler throttler = throttlers.remove(key);
+        if (throttler != null) {
+            throttler.cancel();
+        }
+
+        RateLimiter rateLimiter = rateLimiters.remove(key);
+        if (rateLimiter != null) {
+            rateLimiter.cancel();
+        }
+    }
+
+    // Actions are plain Runnables rather than tasks, so an exception is contained here instead of
+    // escaping into the worker that runs them.
+    private static void runAction(@NonNull Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            Logger.E(action, e);
+        }
+    }
+
+    // Only the most recent action survives a burst. A single timeout is armed per quiet window;
+    // events that arrive while it is pending just move the window's end, and the timeout re-arms
+    // itself for the remainder when it fires early, so a burst of events costs no scheduling work.
+    private final class Debouncer implements Runnable {
+
+        @NonNull
+        private final String key;
+
+        @Nullable
+        private Runnable pendingAction = null;
+
+        @Nullable
+        private Timeout timeout = null;
+
+        @NonNull
+        private TaskMode mode = TaskMode.NEW;
+
+        private long windowNanos = 0L;
+        private long lastEventNanos = 0L;
+
+        private boolean retired = false;
+
+        Debouncer(@NonNull String key) {
+            this.key = key;
+        }
+
+        synchronized boolean submit(@NonNull Runnable action, long window, @NonNull TaskMode mode) {
+            if (retired) {
+                return false;
+            }
+
+            this.pendingAction = action;
+            this.mode = mode;
+            this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, window));
+            this.lastEventNanos = System.nanoTime();
+
+            if (timeout == null) {
+                timeout = TaskManager.schedule(this, window, mode);
+            }
+            return true;
+        }
+
+        synchronized void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+            pendingAction = null;
+            retired = true;
+        }
+
+        @Override
+        public void run() {
+            Runnable action;
+
+            synchronized (this) {
+                long remainingNanos = lastEventNanos + windowNanos - System.nanoTime();
+                if (remainingNanos > 0L) {
+                    timeout = TaskManager.schedule(this, TimeUnit.NANOSECONDS.toMillis(remainingNanos) + 1L, mode);
+                    return;
+                }
+
+                action = pendingAction;
+                pendingAction = null;
+                timeout = null;
+                retired = true;
+                debouncers.remove(key, this);
+            }
+
+            if (action != null) {
+                runAction(action);
+            }
+        }
+    }
+
+    // Runs the first action of a burst straight away, then at most one trailing action (the most
+    // recent one) at the end of each interval. An interval that ends with nothing pending retires
+    // the throttler.
+    private final class Throttler implements Runnable {
+
+        @NonNull
+        private final String key;
+
+        @Nullable
+        private Runnable trailingAction = null;
+
+        @Nullable
+        private Timeout timeout = null;
+
+        @NonNull
+        private TaskMode mode = TaskMode.NEW;
+
+        private long intervalInMilliseconds = 0L;
+
+        private boolean retired = false;
+
+        Throttler(@NonNull String key) {
+            this.key = key;
+        }
+
+        boolean submit(@NonNull Runnable action, long interval, @NonNull TaskMode mode) {
+            synchronized (this) {
+                if (retired) {
+                    return false;
+                }
+
+                this.mode = mode;
+                this.intervalInMilliseconds = Math.max(0L, interval);
+
+                if (timeout != null) {
+                    trailingAction = action;
+                    return true;
+                }
+
+                timeout = TaskManager.schedule(this, intervalInMilliseconds, mode);
+            }
+
+            TaskManager.dispatch(() -> runAction(action), mode);
+            return true;
+        }
+
+        synchronized void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+            trailingAction = null;
+            retired = true;
+        }
+
+        @Override
+        public void run() {
+            Runnable action;
+
+            synchronized (this) {
+                action = trailingAction;
+                trailingAction = null;
+
+                if (action == null) {
+                    timeout = null;
+                    retired = true;
+                    throttlers.remove(key, this);
+                    return;
+                }
+
+                timeout = TaskManager.schedule(this, intervalInMilliseconds, mode);
+            }
+
+            runAction(action);
+        }
+    }
+
+    // Token bucket refilled continuously at permits per period; callers over the limit are
+    // rejected rather than queued. Once the bucket would be full again it is indistinguishable
+    // from a new one, so it retires at that point.
+    private final class RateLimiter implements Runnable {
+
+        static final int ACQUIRED = 0;
+        static final int DENIED = 1;
+        static final int RETIRED = 2;
+
+        @NonNull
+        private final String key;
+
+        @Nullable
+        private Timeout timeout = null;
+
+        private double availablePermits = -1D;
+        private long lastRefillNanos = 0L;
+        private int capacity = 1;
+        private long periodNanos = 1L;
+
+        private boolean retired = false;
+
+        RateLimiter(@NonNull String key) {
+            this.key = key;
+        }
+
+        synchronized int tryAcquire(int permits, long period) {
+            if (retired) {
+                return RETIRED;
+            }
+
+            this.capacity = Math.max(1, permits);
+            this.periodNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, period));
+
+            if (availablePermits < 0D) {
+                availablePermits = capacity;
+                lastRefillNanos = System.nanoTime();
+            } else {
+                refill();
+            }
+
+            if (availablePermits >= 1D) {
+                availablePermits -= 1D;
+                armExpiry();
+                return ACQUIRED;
+            }
+            return DENIED;
+        }
+
+        synchronized void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+            retired = true;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                timeout = null;
+                if (retired) {
+                    return;
+                }
+
+                refill();
+                if (availablePermits >= capacity) {
+                    retired = true;
+                    rateLimiters.remove(key, this);
+                } else {
+                    armExpiry();
+                }
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            double refill = (double) (now - lastRefillNanos) * capacity / periodNanos;
+            availablePermits = Math.min(capacity, availablePermits + refill);
+            lastRefillNanos = now;
+        }
+
+        private void armExpiry() {
+            if (timeout == null) {
+                double missingPermits = capacity - availablePermits;
+                long delayNanos = (long) Math.ceil(missingPermits * periodNanos / capacity);
+                timeout = TaskManager.schedule(this, TimeUnit.NANOSECONDS.toMillis(delayNanos) + 1L, TaskMode.COMPUTE);
+            }
+        }
+    }
 }
@@ -0,0 +1,216 @@
+package com.peridotapps.nitro.concurrent;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.peridotapps.nitro.concurrent.task.TaskManager;
+import com.peridotapps.nitro.concurrent.task.TaskMode;
+import com.peridotapps.nitro.function.BiFunction;
+import com.peridotapps.nitro.function.Consumer;
+import com.peridotapps.nitro.function.Function;
+import com.peridotapps.nitro.function.Predicate;
+import com.peridotapps.nitro.hardware.Cpu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class Parallel {
+
+    // Each worker gets several chunks so a slow element does not leave the other threads idle,
+    // but never chunks so small that claiming them costs more than processing them.
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private Parallel() {
+    }
+
+    public static <T> void forEach(@NonNull Collection<? extends T> items, @NonNull Consumer<? super T> action) throws ExecutionException, InterruptedException {
+        List<? extends T> input = asRandomAccessList(items);
+
+        new ParallelJob(input.size()) {
+            @Override
+            void processChunk(int chunk, int from, int to) throws Exception {
+                for (int index = from; index < to; index++) {
+                    action.accept(input.get(index));
+                }
+            }
+        }.invoke();
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    public static <T, R> List<R> map(@NonNull Collection<? extends T> items, @NonNull Function<? super T, ? extends R> mapper) throws ExecutionException, InterruptedException {
+        List<? extends T> input = asRandomAccessList(items);
+        Object[] results = new Object[input.size()];
+
+        new ParallelJob(input.size()) {
+            @Override
+            void processChunk(int chunk, int from, int to) throws Exception {
+                for (int index = from; index < to; index++) {
+                    results[index] = mapper.apply(input.get(index));
+                }
+            }
+        }.invoke();
+
+        return (List<R>) Arrays.asList(results);
+    }
+
+    @NonNull
+    public static <T> List<T> filter(@NonNull Collection<? extends T> items, @NonNull Predicate<? super T> predicate) throws ExecutionException, InterruptedException {
+        List<? extends T> input = asRandomAccessList(items);
+        boolean[] matches = new boolean[input.size()];
+        AtomicInteger matchCount = new AtomicInteger(0);
+
+        new ParallelJob(input.size()) {
+            @Override
+            void processChunk(int chunk, int from, int to) throws Exception {
+                int matched = 0;
+                for (int index = from; index < to; index++) {
+                    if (predicate.test(input.get(index))) {
+                        matches[index] = true;
+                        matched++;
+                    }
+                }
+                matchCount.addAndGet(matched);
+            }
+        }.invoke();
+
+        List<T> filtered = new ArrayList<>(matchCount.get());
+        for (int index = 0; index < matches.length; index++) {
+            if (matches[index]) {
+                filtered.add(input.get(index));
+            }
+        }
+        return filtered;
+    }
+
+    @Nullable
+    public static <T> T reduce(@NonNull Collection<? extends T> items, @Nullable T identity, @NonNull BiFunction<T, T, T> reducer) throws ExecutionException, InterruptedException {
+        return reduce(items, identity, reducer, reducer);
+    }
+
+    // The accumulator folds each chunk left to right from the identity; the partial results are
+    // then combined in chunk order, so only associativity is required, not commutativity.
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public static <T, R> R reduce(@NonNull Collection<? extends T> items,
+                                  @Nullable R identity,
+                                  @NonNull BiFunction<R, ? super T, R> accumulator,
+                                  @NonNull BiFunction<R, R, R> combiner) throws ExecutionException, InterruptedException {
+        List<? extends T> input = asRandomAccessList(items);
+
+        ParallelJob job = new ParallelJob(input.size()) {
+            @Override
+            void processChunk(int chunk, int from, int to) throws Exception {
+                R partial = identity;
+                for (int index = from; index < to; index++) {
+                    partial = accumulator.apply(partial, input.get(index));
+                }
+                partialResults[chunk] = partial;
+            }
+        };
+        job.invoke();
+
+        R result = identity;
+        for (Object partial : job.partialResults) {
+            try {
+                result = combiner.apply(result, (R) partial);
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+        }
+        return result;
+    }
+
+    @NonNull
+    private static <T> List<? extends T> asRandomAccessList(@NonNull Collection<? extends T> items) {
+        if (items instanceof List && items instanceof RandomAccess) {
+            return (List<? extends T>) items;
+        }
+        return (items.isEmpty()) ? Collections.<T>emptyList() : new ArrayList<>(items);
+    }
+
+    // Workers claim chunks from a shared cursor rather than being handed fixed ranges, which
+    // balances uneven element costs. The calling thread claims chunks too, so a call made from
+    // inside a pool thread still finishes even when every other worker is busy.
+    private abstract static class ParallelJob implements Runnable {
+
+        @NonNull
+        final Object[] partialResults;
+
+        @NonNull
+        private final AtomicInteger nextChunk = new AtomicInteger(0);
+
+        @NonNull
+        private final AtomicInteger finishedChunks = new AtomicInteger(0);
+
+        @NonNull
+        private final AtomicReference<Throwable> failure = new AtomicReference<>(null);
+
+        private final int size;
+        private final int chunkSize;
+        private final int chunkCount;
+
+        ParallelJob(int size) {
+            int parallelism = Math.max(1, Cpu.getNumberOfProcessorCores());
+            this.size = size;
+            this.chunkSize = Math.max(MIN_CHUNK_SIZE, (size + (parallelism * CHUNKS_PER_WORKER) - 1) / (parallelism * CHUNKS_PER_WORKER));
+            this.chunkCount = (size + chunkSize - 1) / chunkSize;
+            this.partialResults = new Object[chunkCount];
+        }
+
+        abstract void processChunk(int chunk, int from, int to) throws Exception;
+
+        final void invoke() throws ExecutionException, InterruptedException {
+            int helpers = Math.min(Cpu.getNumberOfProcessorCores(), chunkCount) - 1;
+            for (int helper = 0; helper < helpers; helper++) {
+                TaskManager.dispatch(this, TaskMode.COMPUTE);
+            }
+
+            run();
+
+            if (finishedChunks.get() < chunkCount) {
+                synchronized (this) {
+                    while (finishedChunks.get() < chunkCount) {
+                        wait();
+                    }
+                }
+            }
+
+            Throwable t = failure.get();
+            if (t != null) {
+                throw new ExecutionException(t);
+            }
+        }
+
+        @Override
+        public final void run() {
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                // Every claimed chunk is counted whatever it throws, Errors included; otherwise
+                // the caller would wait in invoke() for a chunk that never finishes.
+                try {
+                    if (failure.get() == null) {
+                        int from = chunk * chunkSize;
+                        processChunk(chunk, from, Math.min(from + chunkSize, size));
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    if (finishedChunks.incrementAndGet() == chunkCount) {
+                        synchronized (this) {
+                            notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
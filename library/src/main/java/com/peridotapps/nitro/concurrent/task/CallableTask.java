@@ -4,11 +4,9 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 public abstract class CallableTask<T> extends CoreTask implements Callable<T>, Comparable<CallableTask<T>> {
 
@@ -39,11 +37,15 @@ public abstract class CallableTask<T> extends CoreTask implements Callable<T>, C
     @Nullable
     @Override
     public final T call() throws Exception {
-        try {
-            super.run();
-        } catch (Exception e) {
-            return defaultResult;
+        if (!tryClaimRun()) {
+            throw new IllegalStateException("Requested task (" + getTaskId() + ") is already running");
         }
+        return callClaimed();
+    }
+
+    @Nullable
+    final T callClaimed() {
+        runClaimed();
         return (this.result != null) ? this.result : this.defaultResult;
     }
 
@@ -53,7 +55,7 @@ public abstract class CallableTask<T> extends CoreTask implements Callable<T>, C
     }
 
     @NonNull
-    public final Future<T> getFuture() {
+    public final TaskResult<T> getFuture() {
         return TaskManager.getFuture(this);
     }
 
@@ -63,113 +65,104 @@ public abstract class CallableTask<T> extends CoreTask implements Callable<T>, C
         return this;
     }
 
+    final boolean hasDefaultResult() {
+        return defaultResult != null;
+    }
+
     @Override
     @NonNull
-    public final CallableTask<T> addProperty(@NonNull String key, @NonNull Object value) {
-        super.addProperty(key, value);
+    public final CallableTask<T> setTaskThreadMode(@NonNull TaskMode mode) {
+        super.setTaskThreadMode(mode);
         return this;
     }
 
     @Override
     @NonNull
-    public final CallableTask<T> addProperties(@NonNull Map<String, Object> properties) {
-        super.addProperties(properties);
+    public final CallableTask<T> setListenerThreadMode(@NonNull TaskMode mode) {
+        super.setListenerThreadMode(mode);
         return this;
     }
 
     @Override
     @NonNull
-    public final CallableTask<T> addListener(@NonNull TaskListener listener) {
-        super.addListener(listener);
+    public final CallableTask<T> setPriority(@NonNull TaskPriority priority) {
+        super.setPriority(priority);
         return this;
     }
 
     @Override
     @NonNull
-    public final CallableTask<T> addListeners(@NonNull Collection<TaskListener> listenerCollection) {
-        super.addListeners(listenerCollection);
+    public final CallableTask<T> setDeadline(long deadlineInMilliseconds, @NonNull DeadlinePolicy policy) {
+        super.setDeadline(deadlineInMilliseconds, policy);
         return this;
     }
 
     @Override
-    public final int compareTo(@NonNull CallableTask<T> o) {
-        return this.getTaskId()
-                .compareTo(o.getTaskId());
+    @NonNull
+    public final CallableTask<T> clearDeadline() {
+        super.clearDeadline();
+        return this;
     }
 
     @Override
-    public final boolean equals(Object obj) {
-        if (obj instanceof CallableTask) {
-            return ((CallableTask) obj).getTaskId()
-                    .equals(getTaskId());
-        }
-        return false;
+    @NonNull
+    public final CallableTask<T> setCancellationToken(@Nullable CancellationToken token) {
+        super.setCancellationToken(token);
+        return this;
+    }
+
+    @Override
+    @NonNull
+    public final CallableTask<T> setRetryPolicy(@Nullable RetryPolicy policy) {
+        super.setRetryPolicy(policy);
+        return this;
     }
 
     @Override
-    protected void notifyStarted(@NonNull List<TaskListener> listeners) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                for (TaskListener listener : listeners) {
-                    notifyTaskStarted(listener);
-                }
-            }
-        };
+    @NonNull
+    public final CallableTask<T> setStrand(@Nullable String key) {
+        super.setStrand(key);
+        return this;
     }
 
     @Override
-    protected void notifyCompleted(@NonNull List<TaskListener> listeners) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                for (TaskListener listener : listeners) {
-                    notifyTaskCompleted(listener);
-                }
-            }
-        };
+    @NonNull
+    public final CallableTask<T> addProperty(@NonNull String key, @NonNull Object value) {
+        super.addProperty(key, value);
+        return this;
     }
 
     @Override
-    protected void notifyFailure(@NonNull List<TaskListener> listeners, @NonNull Throwable t) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                for (TaskListener listener : listeners) {
-                    notifyTaskFailed(listener, t);
-                }
-            }
-        };
+    @NonNull
+    public final CallableTask<T> addProperties(@NonNull Map<String, Object> properties) {
+        super.addProperties(properties);
+        return this;
     }
 
     @Override
-    protected void notifyTaskStarted(@NonNull TaskListener listener) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                listener.started();
-            }
-        }.execute();
+    @NonNull
+    public final CallableTask<T> addListener(@NonNull TaskListener listener) {
+        super.addListener(listener);
+        return this;
     }
 
     @Override
-    protected void notifyTaskCompleted(@NonNull TaskListener listener) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                listener.completed();
-            }
-        }.execute();
+    @NonNull
+    public final CallableTask<T> addListeners(@NonNull Collection<TaskListener> listenerCollection) {
+        super.addListeners(listenerCollection);
+        return this;
     }
 
     @Override
-    protected void notifyTaskFailed(@NonNull TaskListener listener, @NonNull Throwable t) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                listener.failed(t);
-            }
-        }.execute();
+    public final int compareTo(@NonNull CallableTask<T> o) {
+        return compareScheduling(o);
     }
 
+    @Override
+    public final boolean equals(Object obj) {
+        if (obj instanceof CallableTask) {
+            return hasSameTaskId((CallableTask) obj);
+        }
+        return false;
+    }
 }
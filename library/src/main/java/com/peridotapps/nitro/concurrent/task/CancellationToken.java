@@ -0,0 +1,133 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+public final class CancellationToken {
+
+    @NonNull
+    private static final ThreadLocal<CancellationToken> currentToken = new ThreadLocal<>();
+
+    @Nullable
+    private final CancellationToken parent;
+
+    @NonNull
+    private final Object lock = new Object();
+
+    @NonNull
+    private final Set<Runnable> cancellationListeners = new LinkedHashSet<>();
+
+    @Nullable
+    private final Runnable parentListener;
+
+    private volatile boolean cancelled = false;
+
+    public CancellationToken() {
+        this(null);
+    }
+
+    private CancellationToken(@Nullable CancellationToken parent) {
+        this.parent = parent;
+        this.parentListener = (parent != null) ? this::cancel : null;
+    }
+
+    // The token of the task running on this thread, if any. Tasks submitted while it is set join
+    // the same tree unless they were given a token of their own.
+    @Nullable
+    public static CancellationToken current() {
+        return currentToken.get();
+    }
+
+    @NonNull
+    public CancellationToken createChild() {
+        CancellationToken child = new CancellationToken(this);
+        addCancellationListener(child.parentListener);
+        return child;
+    }
+
+    public void cancel() {
+        List<Runnable> listeners;
+
+        synchronized (lock) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            listeners = new ArrayList<>(cancellationListeners);
+            cancellationListeners.clear();
+        }
+
+        if (parent != null) {
+            parent.removeCancellationListener(parentListener);
+        }
+
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    // A parent holds on to every child until the child is cancelled. A child whose work has
+    // finished should be disposed so that a long-lived parent does not keep it reachable; it still
+    // reads as cancelled if an ancestor is cancelled later, but is no longer notified.
+    public void dispose() {
+        if (parent != null) {
+            parent.removeCancellationListener(parentListener);
+        }
+    }
+
+    // Children consult their ancestors as well, so a subtree reads as cancelled the moment the
+    // root flips, even before the cancellation listeners have walked down to it.
+    public boolean isCancelled() {
+        for (CancellationToken token = this; token != null; token = token.parent) {
+            if (token.cancelled) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("The operation was cancelled");
+        }
+    }
+
+    public void addCancellationListener(@NonNull Runnable listener) {
+        synchronized (lock) {
+            if (!cancelled) {
+                cancellationListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    public void removeCancellationListener(@Nullable Runnable listener) {
+        if (listener != null) {
+            synchronized (lock) {
+                cancellationListeners.remove(listener);
+            }
+        }
+    }
+
+    @Nullable
+    static CancellationToken enter(@NonNull CancellationToken token) {
+        CancellationToken previous = currentToken.get();
+        currentToken.set(token);
+        return previous;
+    }
+
+    static void exit(@Nullable CancellationToken previous) {
+        if (previous == null) {
+            currentToken.remove();
+        } else {
+            currentToken.set(previous);
+        }
+    }
+}
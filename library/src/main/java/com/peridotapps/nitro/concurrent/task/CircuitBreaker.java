@@ -0,0 +1,86 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    @NonNull
+    private static final State[] STATES = State.values();
+
+    @NonNull
+    private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+
+    @NonNull
+    private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+
+    @NonNull
+    private final AtomicLong openedAtNanos = new AtomicLong(0L);
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    public CircuitBreaker(int failureThreshold, long openDurationInMilliseconds) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, openDurationInMilliseconds));
+    }
+
+    @NonNull
+    public State getState() {
+        return STATES[state.get()];
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public void reset() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED.ordinal());
+    }
+
+    // Once the open period has elapsed exactly one caller wins the move to HALF_OPEN and is let
+    // through as a probe; everyone else keeps failing fast until that probe reports back.
+    boolean allowRequest() {
+        int current = state.get();
+
+        if (current == State.CLOSED.ordinal()) {
+            return true;
+        }
+
+        return current == State.OPEN.ordinal()
+                && System.nanoTime() - openedAtNanos.get() >= openDurationNanos
+                && state.compareAndSet(current, State.HALF_OPEN.ordinal());
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED.ordinal());
+    }
+
+    // A cancelled execution says nothing about the dependency, but if it was the probe the breaker
+    // would otherwise sit in HALF_OPEN for good. Going back to OPEN with the open period already
+    // elapsed lets the next request become the probe.
+    void releaseProbe() {
+        state.compareAndSet(State.HALF_OPEN.ordinal(), State.OPEN.ordinal());
+    }
+
+    void recordFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        int current = state.get();
+
+        if (current == State.HALF_OPEN.ordinal() || (current == State.CLOSED.ordinal() && failures >= failureThreshold)) {
+            openedAtNanos.set(System.nanoTime());
+            state.compareAndSet(current, State.OPEN.ordinal());
+        }
+    }
+}
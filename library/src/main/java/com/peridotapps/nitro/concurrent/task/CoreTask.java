@@ -5,88 +5,164 @@ import android.support.annotation.CallSuper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.peridotapps.nitro.identifier.IdGenerator;
+import com.peridotapps.nitro.logging.Logger;
+
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 abstract class CoreTask implements Task {
 
-    @Nullable
-    private final String taskId;
+    static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    // The lifecycle state lives in the low bits of a single atomic word and the stop/cancel
+    // requests in flag bits above it, so every transition is one CAS and every read one load.
+    private static final int STATE_MASK = 0x7;
+    private static final int FLAG_STOP_REQUESTED = 1 << 3;
+    private static final int FLAG_CANCEL_REQUESTED = 1 << 4;
 
     @NonNull
-    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private static final TaskState[] STATES = TaskState.values();
+
+    @NonNull
+    private static final Task.TaskListener[] EMPTY_LISTENERS = new Task.TaskListener[0];
+
+    private final long numericTaskId;
+    private final boolean customTaskId;
+
+    @Nullable
+    private volatile String taskId;
 
     @NonNull
-    private final AtomicBoolean runningAtomicBoolean = new AtomicBoolean(false);
+    private final AtomicInteger state = new AtomicInteger(TaskState.CREATED.ordinal());
 
     @NonNull
-    private final AtomicBoolean stopRequested = new AtomicBoolean(false);
+    private final Object listenerLock = new Object();
 
     @NonNull
-    private final List<Task.TaskListener> listeners = new LinkedList<>();
+    private volatile Task.TaskListener[] listeners = EMPTY_LISTENERS;
+
+    @Nullable
+    private volatile ListenerDispatcher listenerDispatcher = null;
 
     @NonNull
     private final Map<String, Object> properties = new ConcurrentHashMap<>();
 
+    @NonNull
+    private volatile TaskMode taskMode = TaskMode.NEW;
+
+    @NonNull
+    private volatile TaskMode listenerThreadMode = TaskMode.NEW;
+
+    @NonNull
+    private volatile TaskPriority priority = TaskPriority.NORMAL;
+
+    @NonNull
+    private volatile DeadlinePolicy deadlinePolicy = DeadlinePolicy.PROMOTE;
+
+    private volatile long deadlineNanos = NO_DEADLINE;
+
+    @Nullable
+    private volatile Thread taskThread = null;
+
+    @Nullable
+    private volatile Throwable failure = null;
+
     @Nullable
-    private Thread taskThread = null;
+    private volatile QueuedTask<?> delayedSubmission = null;
+
+    @Nullable
+    private volatile CancellationToken cancellationToken = null;
+
+    @Nullable
+    private volatile RetryPolicy retryPolicy = null;
+
+    @Nullable
+    private volatile String strandKey = null;
 
     public CoreTask() {
-        this(TaskManager.generateTaskId());
+        this.numericTaskId = TaskManager.generateTaskId();
+        this.customTaskId = false;
+        this.taskId = null;
     }
 
     public CoreTask(@NonNull String taskId) {
+        this.numericTaskId = TaskManager.generateTaskId();
+        this.customTaskId = true;
         this.taskId = taskId;
     }
 
+    // Losing the race to start leaves the running execution alone: its failure and listeners
+    // belong to it. A submission fails only its own result (see QueuedTask); a direct caller is
+    // told through the log.
     @Override
     public final void run() {
+        if (!transitionToRunning()) {
+            Logger.W(this, "Requested task (" + getTaskId() + ") is already running");
+            return;
+        }
+        runClaimed();
+    }
+
+    // Runs a task that the caller has already moved into RUNNING through tryClaimRun().
+    final void runClaimed() {
+        boolean succeeded = false;
         try {
-            if (!isRunning()) {
+            failure = null;
 
-                taskThread = Thread.currentThread();
-                for (int currentStep = 0; currentStep < 3; currentStep++) {
+            taskThread = Thread.currentThread();
+            for (int currentStep = 0; currentStep < 3; currentStep++) {
 
-                    if (isCancelled() && isMainThread() && isAlive() && isNotInterrupted()) {
-                        Thread.currentThread().interrupt();
-                    }
+                if (isCancelled() && isMainThread() && isAlive() && isNotInterrupted()) {
+                    Thread.currentThread().interrupt();
+                }
 
-                    if (isNotInterrupted() && !isStopRequested()) {
-                        switch (currentStep) {
-                            case STEP_ON_START:
-                                onStart();
-                                break;
-                            case STEP_ON_RUN:
-                                doWork();
-                                break;
-                            case STEP_ON_COMPLETE:
-                                onCompleted();
-                                break;
-                        }
+                if (isNotInterrupted() && !isStopRequested()) {
+                    switch (currentStep) {
+                        case STEP_ON_START:
+                            onStart();
+                            break;
+                        case STEP_ON_RUN:
+                            doWork();
+                            break;
+                        case STEP_ON_COMPLETE:
+                            onCompleted();
+                            break;
+                    }
+                } else {
+                    if (isCancelled()) {
+                        throw new InterruptedException("Task " + getTaskId() + " was cancelled");
                     } else {
-                        if (isCancelled()) {
-                            throw new InterruptedException("Task " + taskId + " was cancelled");
-                        } else {
-                            throw new InterruptedException("A stop was requested for task: " + taskId);
-                        }
+                        throw new InterruptedException("A stop was requested for task: " + getTaskId());
                     }
-
                 }
 
-                onStop();
-                taskThread = null;
-
-            } else {
-                throw new RuntimeException("Requested task (" + taskId + ") is already running", new Throwable());
             }
 
+            onStop();
+            succeeded = true;
+
         } catch (Exception e) {
-            onFailed(e);
+            failure = e;
+            transitionFromRunning(isCancelled() ? TaskState.CANCELLED : TaskState.FAILED);
+            taskThread = null;
+            if (!QueuedTask.deferFailure(this, e)) {
+                onFailed(e);
+            }
+        } finally {
+            taskThread = null;
+            if (succeeded) {
+                transitionFromRunning(TaskState.COMPLETED);
+            } else if (getState() == TaskState.RUNNING) {
+                // Only an Error gets past the catch above still RUNNING; left there, the task
+                // could never be claimed again.
+                transitionFromRunning(TaskState.FAILED);
+            }
         }
     }
 
@@ -105,6 +181,63 @@ abstract class CoreTask implements Task {
     @Nullable
     public abstract <T> T doWork() throws Exception;
 
+    @CallSuper
+    @NonNull
+    public CoreTask setTaskThreadMode(@NonNull TaskMode mode) {
+        this.taskMode = mode;
+        return this;
+    }
+
+    @CallSuper
+    @NonNull
+    public CoreTask setListenerThreadMode(@NonNull TaskMode mode) {
+        this.listenerThreadMode = mode;
+        return this;
+    }
+
+    @CallSuper
+    @NonNull
+    public CoreTask setPriority(@NonNull TaskPriority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    @CallSuper
+    @NonNull
+    public CoreTask setDeadline(long deadlineInMilliseconds, @NonNull DeadlinePolicy policy) {
+        this.deadlinePolicy = policy;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, deadlineInMilliseconds));
+        return this;
+    }
+
+    @CallSuper
+    @NonNull
+    public CoreTask clearDeadline() {
+        this.deadlineNanos = NO_DEADLINE;
+        return this;
+    }
+
+    @CallSuper
+    @NonNull
+    public CoreTask setCancellationToken(@Nullable CancellationToken token) {
+        this.cancellationToken = token;
+        return this;
+    }
+
+    @CallSuper
+    @NonNull
+    public CoreTask setRetryPolicy(@Nullable RetryPolicy policy) {
+        this.retryPolicy = policy;
+        return this;
+    }
+
+    @CallSuper
+    @NonNull
+    public CoreTask setStrand(@Nullable String key) {
+        this.strandKey = key;
+        return this;
+    }
+
     @CallSuper
     @NonNull
     public CoreTask addProperty(@NonNull String key, @NonNull Object value) {
@@ -126,8 +259,12 @@ abstract class CoreTask implements Task {
     @CallSuper
     @NonNull
     public CoreTask addListener(@NonNull Task.TaskListener listener) {
-        synchronized (listeners) {
-            listeners.add(listener);
+        synchronized (listenerLock) {
+            Task.TaskListener[] current = listeners;
+            Task.TaskListener[] updated = new Task.TaskListener[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = listener;
+            setListenerArray(updated);
         }
         return this;
     }
@@ -135,8 +272,17 @@ abstract class CoreTask implements Task {
     @CallSuper
     @NonNull
     public CoreTask addListeners(@NonNull Collection<TaskListener> listenerCollection) {
-        synchronized (this.listeners) {
-            listeners.addAll(listenerCollection);
+        if (!listenerCollection.isEmpty()) {
+            synchronized (listenerLock) {
+                Task.TaskListener[] current = listeners;
+                Task.TaskListener[] updated = new Task.TaskListener[current.length + listenerCollection.size()];
+                System.arraycopy(current, 0, updated, 0, current.length);
+                int index = current.length;
+                for (Task.TaskListener listener : listenerCollection) {
+                    updated[index++] = listener;
+                }
+                setListenerArray(updated);
+            }
         }
         return this;
     }
@@ -144,71 +290,178 @@ abstract class CoreTask implements Task {
     @CallSuper
     @Override
     public void onStart() {
-        if (!isRunning()) {
-            setRunning(true);
-            List<Task.TaskListener> listenerList = getListeners();
-
-            if (listenerList != null && !listenerList.isEmpty()) {
-                notifyStarted(listenerList);
-            }
-        }
+        notifyListeners(ListenerDispatcher.EVENT_STARTED, null);
     }
 
     @CallSuper
     @Override
     public void onStop() {
-        setRunning(false);
     }
 
     @CallSuper
     @Override
     public void onCompleted() {
-        List<Task.TaskListener> listenerList = getListeners();
-        if (listenerList != null && !listenerList.isEmpty()) {
-            notifyCompleted(listenerList);
-        }
+        notifyListeners(ListenerDispatcher.EVENT_COMPLETED, null);
     }
 
     @CallSuper
     @Override
     public void onFailed(@NonNull Throwable t) {
-        List<Task.TaskListener> listenerList = getListeners();
-        if (listenerList != null && !listenerList.isEmpty()) {
-            notifyFailure(listenerList, t);
-        }
+        notifyListeners(ListenerDispatcher.EVENT_FAILED, t);
     }
 
     public final void cancel() {
-        if (taskThread != null) {
-            taskThread.interrupt();
+        for (; ; ) {
+            int current = state.get();
+            TaskState lifecycle = STATES[current & STATE_MASK];
+            int updated = current | FLAG_CANCEL_REQUESTED | FLAG_STOP_REQUESTED;
+
+            if (lifecycle == TaskState.CREATED || lifecycle == TaskState.QUEUED) {
+                updated = (updated & ~STATE_MASK) | TaskState.CANCELLED.ordinal();
+            }
+
+            if (current == updated || state.compareAndSet(current, updated)) {
+                break;
+            }
+        }
+
+        QueuedTask<?> submission = delayedSubmission;
+        if (submission != null) {
+            submission.cancelDelay();
+        }
+
+        Thread thread = taskThread;
+        if (thread != null) {
+            thread.interrupt();
         }
-        requestStop();
-        setCancelled(true);
     }
 
     public final void requestStop() {
-        this.stopRequested.set(true);
+        setFlag(FLAG_STOP_REQUESTED, true);
+    }
+
+    @NonNull
+    public final TaskState getState() {
+        return STATES[state.get() & STATE_MASK];
+    }
+
+    @NonNull
+    public final TaskMode getTaskMode() {
+        return taskMode;
+    }
+
+    @NonNull
+    public final TaskMode getListenerThreadMode() {
+        return listenerThreadMode;
+    }
+
+    @NonNull
+    public final TaskPriority getPriority() {
+        return priority;
+    }
+
+    @NonNull
+    public final DeadlinePolicy getDeadlinePolicy() {
+        return deadlinePolicy;
+    }
+
+    public final boolean hasDeadline() {
+        return deadlineNanos != NO_DEADLINE;
+    }
+
+    @Nullable
+    public final String getStrand() {
+        return strandKey;
+    }
+
+    @Nullable
+    public final RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    @Nullable
+    public final CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    final void setDelayedSubmission(@Nullable QueuedTask<?> submission) {
+        this.delayedSubmission = submission;
+    }
+
+    @Nullable
+    final QueuedTask<?> getDelayedSubmission() {
+        return delayedSubmission;
+    }
+
+    @Nullable
+    final Throwable getFailure() {
+        return failure;
+    }
+
+    final long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    final int compareScheduling(@NonNull CoreTask other) {
+        int result = this.priority.ordinal() - other.priority.ordinal();
+
+        if (result == 0 && (this.hasDeadline() || other.hasDeadline())) {
+            if (!other.hasDeadline()) {
+                result = -1;
+            } else if (!this.hasDeadline()) {
+                result = 1;
+            } else {
+                long difference = this.deadlineNanos - other.deadlineNanos;
+                result = (difference < 0L) ? -1 : ((difference > 0L) ? 1 : 0);
+            }
+        }
+
+        if (result == 0) {
+            if (this.customTaskId || other.customTaskId) {
+                result = this.getTaskId()
+                        .compareTo(other.getTaskId());
+            } else {
+                long difference = this.numericTaskId - other.numericTaskId;
+                result = (difference < 0L) ? -1 : ((difference > 0L) ? 1 : 0);
+            }
+        }
+
+        return result;
+    }
+
+    final boolean hasSameTaskId(@NonNull CoreTask other) {
+        if (this.customTaskId || other.customTaskId) {
+            return this.getTaskId()
+                    .equals(other.getTaskId());
+        }
+        return this.numericTaskId == other.numericTaskId;
     }
 
     @NonNull
     public final String getTaskId() {
-        return taskId;
+        String id = taskId;
+        if (id == null) {
+            id = IdGenerator.render(numericTaskId);
+            taskId = id;
+        }
+        return id;
+    }
+
+    public final long getNumericTaskId() {
+        return numericTaskId;
     }
 
     public final boolean isCancelled() {
-        boolean cancel;
-        synchronized (cancelled) {
-            cancel = cancelled.get();
+        if ((state.get() & FLAG_CANCEL_REQUESTED) != 0) {
+            return true;
         }
-        return cancel;
+
+        CancellationToken token = cancellationToken;
+        return token != null && token.isCancelled();
     }
 
     public final boolean isStopRequested() {
-        boolean stop;
-        synchronized (this.stopRequested) {
-            stop = stopRequested.get();
-        }
-        return stop;
+        return (state.get() & FLAG_STOP_REQUESTED) != 0;
     }
 
     @NonNull
@@ -223,9 +476,7 @@ abstract class CoreTask implements Task {
     }
 
     public final boolean isRunning() {
-        synchronized (runningAtomicBoolean) {
-            return runningAtomicBoolean.get();
-        }
+        return getState() == TaskState.RUNNING;
     }
 
     @Nullable
@@ -240,8 +491,14 @@ abstract class CoreTask implements Task {
     }
 
     public final void removeListener(@NonNull Task.TaskListener listener) {
-        synchronized (this.listeners) {
-            listeners.remove(listener);
+        synchronized (listenerLock) {
+            Task.TaskListener[] current = listeners;
+            for (int position = 0; position < current.length; position++) {
+                if (current[position].equals(listener)) {
+                    removeListenerAt(current, position);
+                    return;
+                }
+            }
         }
     }
 
@@ -252,56 +509,124 @@ abstract class CoreTask implements Task {
     }
 
     public final void removeListener(int position) {
-        synchronized (this.listeners) {
-            listeners.remove(position);
+        synchronized (listenerLock) {
+            Task.TaskListener[] current = listeners;
+            if (position < 0 || position >= current.length) {
+                throw new IndexOutOfBoundsException("Listener position " + position + " is out of bounds for task " + getTaskId());
+            }
+            removeListenerAt(current, position);
         }
     }
 
     public final void clearListeners() {
-        synchronized (listeners) {
-            listeners.clear();
+        synchronized (listenerLock) {
+            listeners = EMPTY_LISTENERS;
         }
     }
 
-    protected abstract void notifyStarted(@NonNull List<Task.TaskListener> listeners);
+    @NonNull
+    final Task.TaskListener[] getListenerArray() {
+        return listeners;
+    }
 
-    protected abstract void notifyCompleted(@NonNull List<Task.TaskListener> listeners);
+    protected final void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Task " + getTaskId() + " was cancelled");
+        }
+    }
+
+    protected final void resetStopRequested() {
+        setFlag(FLAG_STOP_REQUESTED, false);
+    }
 
-    protected abstract void notifyFailure(@NonNull List<Task.TaskListener> listeners, @NonNull Throwable t);
+    final void markQueued() {
+        for (; ; ) {
+            int current = state.get();
+            TaskState lifecycle = STATES[current & STATE_MASK];
 
-    protected abstract void notifyTaskStarted(@NonNull Task.TaskListener listener);
+            if (lifecycle == TaskState.RUNNING || lifecycle == TaskState.QUEUED || lifecycle == TaskState.CANCELLED) {
+                return;
+            }
 
-    protected abstract void notifyTaskCompleted(@NonNull Task.TaskListener listener);
+            if (state.compareAndSet(current, (current & ~STATE_MASK) | TaskState.QUEUED.ordinal())) {
+                return;
+            }
+        }
+    }
 
-    protected abstract void notifyTaskFailed(@NonNull Task.TaskListener listener, @NonNull Throwable t);
+    // A submission that is rejected or dropped never runs, so it ends the way cancel() ends a
+    // queued task, only in FAILED.
+    final void failQueued() {
+        for (; ; ) {
+            int current = state.get();
+            if ((current & STATE_MASK) != TaskState.QUEUED.ordinal()) {
+                return;
+            }
 
-    protected final void resetStopRequested() {
-        synchronized (this.stopRequested) {
-            this.stopRequested.set(false);
+            if (state.compareAndSet(current, (current & ~STATE_MASK) | TaskState.FAILED.ordinal())) {
+                return;
+            }
         }
     }
 
-    private void setCancelled(boolean cancel) {
-        synchronized (cancelled) {
-            cancelled.set(cancel);
+    final boolean tryClaimRun() {
+        return transitionToRunning();
+    }
+
+    // Only one thread can move a task into RUNNING, which closes the window the old
+    // isRunning() check-then-act left open for two workers to run the same task at once.
+    private boolean transitionToRunning() {
+        for (; ; ) {
+            int current = state.get();
+
+            if ((current & STATE_MASK) == TaskState.RUNNING.ordinal()) {
+                return false;
+            }
+
+            if (state.compareAndSet(current, (current & ~STATE_MASK) | TaskState.RUNNING.ordinal())) {
+                return true;
+            }
         }
     }
 
-    private void setRunning(boolean running) {
-        synchronized (runningAtomicBoolean) {
-            this.runningAtomicBoolean.set(running);
+    final void transitionFromRunning(@NonNull TaskState terminalState) {
+        for (; ; ) {
+            int current = state.get();
+            if (state.compareAndSet(current, (current & ~STATE_MASK) | terminalState.ordinal())) {
+                return;
+            }
         }
     }
 
-    @NonNull
-    private List<Task.TaskListener> getListeners() {
-        List<Task.TaskListener> taskListeners = new LinkedList<>();
+    private void setFlag(int flag, boolean enabled) {
+        for (; ; ) {
+            int current = state.get();
+            int updated = enabled ? (current | flag) : (current & ~flag);
+            if (current == updated || state.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
 
-        synchronized (listeners) {
-            taskListeners.addAll(listeners);
+    private void setListenerArray(@NonNull Task.TaskListener[] updated) {
+        if (listenerDispatcher == null) {
+            listenerDispatcher = new ListenerDispatcher(this);
         }
+        listeners = updated;
+    }
 
-        return taskListeners;
+    private void removeListenerAt(@NonNull Task.TaskListener[] current, int position) {
+        Task.TaskListener[] updated = new Task.TaskListener[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, position);
+        System.arraycopy(current, position + 1, updated, position, current.length - position - 1);
+        listeners = (updated.length > 0) ? updated : EMPTY_LISTENERS;
+    }
+
+    private void notifyListeners(int event, @Nullable Throwable t) {
+        ListenerDispatcher dispatcher = listenerDispatcher;
+        if (dispatcher != null && listeners.length > 0) {
+            dispatcher.post(event, t);
+        }
     }
 
 }
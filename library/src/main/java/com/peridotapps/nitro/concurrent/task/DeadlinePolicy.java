@@ -0,0 +1,6 @@
+package com.peridotapps.nitro.concurrent.task;
+
+public enum DeadlinePolicy {
+    DROP,
+    PROMOTE
+}
@@ -0,0 +1,81 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+import com.peridotapps.nitro.hardware.Cpu;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public final class FixedPoolTaskScheduler implements TaskScheduler {
+
+    private static final int MAX_THREAD_POOL_SIZE = 24;
+    private static final int THREAD_POOL_SIZE_MULTIPLIER = 8;
+    private static final long DEFAULT_BLOCK_TIMEOUT_MILLISECONDS = 5000L;
+
+    @NonNull
+    private final ThreadPoolExecutor executor;
+
+    private final int queueCapacity;
+
+    public FixedPoolTaskScheduler() {
+        this(calculateThreadPoolLimits());
+    }
+
+    public FixedPoolTaskScheduler(int threadPoolSize) {
+        this(threadPoolSize, Integer.MAX_VALUE, RejectionPolicy.FAIL_FAST);
+    }
+
+    public FixedPoolTaskScheduler(int threadPoolSize, int queueCapacity, @NonNull RejectionPolicy policy) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.executor = new ThreadPoolExecutor(threadPoolSize,
+                threadPoolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(this.queueCapacity),
+                new TaskThreadFactory("nitro-fixed"),
+                new TaskRejectionHandler(policy, DEFAULT_BLOCK_TIMEOUT_MILLISECONDS));
+    }
+
+    @Override
+    public void execute(@NonNull Runnable runnable, @NonNull TaskMode mode) {
+        executor.execute(runnable);
+    }
+
+    @NonNull
+    @Override
+    public TaskSchedulerStatistics getStatistics() {
+        return new TaskSchedulerStatistics(0,
+                0,
+                0L,
+                0L,
+                executor.getPoolSize(),
+                executor.getActiveCount(),
+                executor.getQueue()
+                        .size(),
+                queueCapacity,
+                executor.getCompletedTaskCount(),
+                0,
+                0,
+                0L,
+                0);
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return LaneTaskScheduler.isAboveHighWaterMark(executor.getQueue()
+                .size(), queueCapacity);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static int calculateThreadPoolLimits() {
+        return (Cpu.getNumberOfProcessorCores() * THREAD_POOL_SIZE_MULTIPLIER > MAX_THREAD_POOL_SIZE)
+                ? MAX_THREAD_POOL_SIZE
+                : Cpu.getNumberOfProcessorCores() * THREAD_POOL_SIZE_MULTIPLIER;
+    }
+}
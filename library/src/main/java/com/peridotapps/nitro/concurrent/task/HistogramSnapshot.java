@@ -0,0 +1,68 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+public final class HistogramSnapshot {
+
+    @NonNull
+    private final long[] counts;
+
+    private final long totalCount;
+    private final long totalMicroseconds;
+    private final long maxMicroseconds;
+
+    HistogramSnapshot(@NonNull long[] counts, long totalCount, long totalMicroseconds, long maxMicroseconds) {
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.totalMicroseconds = totalMicroseconds;
+        this.maxMicroseconds = maxMicroseconds;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getTotalInMicroseconds() {
+        return totalMicroseconds;
+    }
+
+    public long getMaxInMicroseconds() {
+        return maxMicroseconds;
+    }
+
+    public double getMeanInMicroseconds() {
+        return (totalCount == 0L) ? 0D : (double) totalMicroseconds / totalCount;
+    }
+
+    public long getPercentileInMicroseconds(double percentile) {
+        if (totalCount == 0L) {
+            return 0L;
+        }
+
+        double clamped = Math.min(100D, Math.max(0D, percentile));
+        long target = Math.max(1L, (long) Math.ceil(clamped / 100D * totalCount));
+        long seen = 0L;
+
+        for (int index = 0; index < counts.length; index++) {
+            seen += counts[index];
+            if (seen >= target) {
+                return Math.min(LatencyHistogram.middleValueAt(index), maxMicroseconds);
+            }
+        }
+
+        return maxMicroseconds;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{" +
+                "count=" + totalCount +
+                ", meanUs=" + Math.round(getMeanInMicroseconds()) +
+                ", p50Us=" + getPercentileInMicroseconds(50D) +
+                ", p90Us=" + getPercentileInMicroseconds(90D) +
+                ", p99Us=" + getPercentileInMicroseconds(99D) +
+                ", maxUs=" + maxMicroseconds +
+                '}';
+    }
+}
@@ -0,0 +1,394 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.annotation.SuppressLint;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.peridotapps.nitro.hardware.Cpu;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class LaneTaskScheduler implements TaskScheduler {
+
+    private static final int BLOCKING_THREAD_LIMIT_MULTIPLIER = 8;
+    private static final int MAX_BLOCKING_THREAD_LIMIT = 24;
+    private static final int MAX_ADAPTIVE_BLOCKING_THREAD_LIMIT = 64;
+    private static final long DEFAULT_KEEP_ALIVE_MILLISECONDS = 30000L;
+    private static final long DEFAULT_BLOCK_TIMEOUT_MILLISECONDS = 5000L;
+
+    // ART has no virtual threads and a blocked call cannot be suspended mid-flight, so the IO
+    // lane gets its concurrency from many short-lived threads instead: stacks are a fraction of
+    // the 1MB default and idle threads are reaped quickly, which keeps hundreds of parked
+    // requests affordable without growing the blocking pool. Threads are only started when every
+    // existing one is busy (see IoWorkQueue), so a burst does not spin up the whole limit.
+    private static final int DEFAULT_IO_THREAD_LIMIT = 256;
+    private static final long IO_THREAD_STACK_SIZE_BYTES = 128L * 1024L;
+    private static final long IO_KEEP_ALIVE_MILLISECONDS = 5000L;
+
+    // Producers are told to back off once a bounded queue is three quarters full, leaving the
+    // remaining headroom to absorb work that is already in flight before rejections start.
+    private static final float HIGH_WATER_MARK = 0.75F;
+
+    @NonNull
+    private final ExecutorService computeExecutor;
+
+    @NonNull
+    private final ThreadPoolExecutor blockingExecutor;
+
+    @NonNull
+    private final TaskQueue blockingQueue;
+
+    @NonNull
+    private final IoWorkQueue ioQueue;
+
+    @NonNull
+    private final ThreadPoolExecutor ioExecutor;
+
+    @Nullable
+    private final PoolSizeController blockingPoolSizeController;
+
+    private final int computeParallelism;
+
+    public LaneTaskScheduler() {
+        this(Cpu.getNumberOfProcessorCores(),
+                Cpu.getNumberOfProcessorCores(),
+                calculateAdaptiveBlockingThreadLimit(),
+                DEFAULT_KEEP_ALIVE_MILLISECONDS,
+                Integer.MAX_VALUE,
+                RejectionPolicy.FAIL_FAST,
+                DEFAULT_BLOCK_TIMEOUT_MILLISECONDS,
+                DEFAULT_IO_THREAD_LIMIT,
+                Integer.MAX_VALUE);
+    }
+
+    public LaneTaskScheduler(int computeParallelism, int blockingThreadLimit, long keepAliveInMilliseconds) {
+        this(computeParallelism, blockingThreadLimit, blockingThreadLimit, keepAliveInMilliseconds, Integer.MAX_VALUE, RejectionPolicy.FAIL_FAST, DEFAULT_BLOCK_TIMEOUT_MILLISECONDS, DEFAULT_IO_THREAD_LIMIT, Integer.MAX_VALUE);
+    }
+
+    // When the blocking bounds differ the lane starts at the classic size within them and a
+    // PoolSizeController moves it from there; equal bounds give a fixed-size lane as before.
+    private LaneTaskScheduler(int computeParallelism,
+                              int minBlockingThreads,
+                              int maxBlockingThreads,
+                              long keepAliveInMilliseconds,
+                              int blockingQueueCapacity,
+                              @NonNull RejectionPolicy rejectionPolicy,
+                              long blockTimeoutInMilliseconds,
+                              int ioThreadLimit,
+                              int ioQueueCapacity) {
+        this.computeParallelism = Math.max(1, computeParallelism);
+        this.computeExecutor = this.initComputeExecutor();
+        this.blockingQueue = new TaskQueue(blockingQueueCapacity);
+        int minimumBlockingThreads = Math.max(1, minBlockingThreads);
+        int maximumBlockingThreads = Math.max(minimumBlockingThreads, maxBlockingThreads);
+        boolean adaptive = minimumBlockingThreads < maximumBlockingThreads;
+        TaskThreadFactory blockingThreadFactory = new TaskThreadFactory("nitro-blocking", 0L, adaptive);
+        TaskRejectionHandler rejectionHandler = new TaskRejectionHandler(rejectionPolicy, blockTimeoutInMilliseconds);
+        this.blockingExecutor = this.initBlockingExecutor(Math.max(minimumBlockingThreads, Math.min(maximumBlockingThreads, calculateBlockingThreadLimit())),
+                keepAliveInMilliseconds,
+                blockingThreadFactory,
+                rejectionHandler);
+        this.blockingPoolSizeController = adaptive
+                ? new PoolSizeController(blockingExecutor, blockingThreadFactory, minimumBlockingThreads, maximumBlockingThreads)
+                : null;
+        this.ioQueue = new IoWorkQueue(Math.max(1, ioQueueCapacity), rejectionHandler);
+        this.ioExecutor = this.initIoExecutor(Math.max(1, ioThreadLimit));
+    }
+
+    @Override
+    public void execute(@NonNull Runnable runnable, @NonNull TaskMode mode) {
+        if (mode == TaskMode.COMPUTE) {
+            computeExecutor.execute(runnable);
+        } else if (mode == TaskMode.IO) {
+            ioExecutor.execute(runnable);
+        } else {
+            blockingExecutor.execute(runnable);
+            if (blockingPoolSizeController != null) {
+                blockingPoolSizeController.onExecute();
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public TaskSchedulerStatistics getStatistics() {
+        int computeActiveThreads;
+        long computeQueueDepth;
+        long computeStealCount;
+
+        if (isWorkStealing()) {
+            ForkJoinPool pool = (ForkJoinPool) computeExecutor;
+            computeActiveThreads = pool.getActiveThreadCount();
+            computeQueueDepth = pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+            computeStealCount = pool.getStealCount();
+        } else {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) computeExecutor;
+            computeActiveThreads = pool.getActiveCount();
+            computeQueueDepth = pool.getQueue()
+                    .size();
+            computeStealCount = 0L;
+        }
+
+        return new TaskSchedulerStatistics(computeParallelism,
+                computeActiveThreads,
+                computeQueueDepth,
+                computeStealCount,
+                blockingExecutor.getPoolSize(),
+                blockingExecutor.getActiveCount(),
+                blockingQueue.size(),
+                blockingQueue.getCapacity(),
+                blockingExecutor.getCompletedTaskCount(),
+                ioExecutor.getMaximumPoolSize(),
+                ioExecutor.getActiveCount(),
+                ioQueue.size(),
+                ioQueue.getCapacity());
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return isAboveHighWaterMark(blockingQueue.size(), blockingQueue.getCapacity())
+                || isAboveHighWaterMark(ioQueue.size(), ioQueue.getCapacity());
+    }
+
+    @Override
+    public void shutdown() {
+        computeExecutor.shutdown();
+        blockingExecutor.shutdown();
+        ioExecutor.shutdown();
+    }
+
+    private boolean isWorkStealing() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && computeExecutor instanceof ForkJoinPool;
+    }
+
+    @SuppressLint("NewApi")
+    @NonNull
+    private ExecutorService initComputeExecutor() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return new ForkJoinPool(computeParallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        }
+
+        return new ThreadPoolExecutor(computeParallelism,
+                computeParallelism,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new TaskThreadFactory("nitro-compute"));
+    }
+
+    @NonNull
+    private ThreadPoolExecutor initBlockingExecutor(int threadLimit,
+                                                    long keepAliveInMilliseconds,
+                                                    @NonNull TaskThreadFactory threadFactory,
+                                                    @NonNull TaskRejectionHandler rejectionHandler) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadLimit,
+                threadLimit,
+                keepAliveInMilliseconds,
+                TimeUnit.MILLISECONDS,
+                blockingQueue,
+                threadFactory,
+                rejectionHandler);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @NonNull
+    private ThreadPoolExecutor initIoExecutor(int threadLimit) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0,
+                threadLimit,
+                IO_KEEP_ALIVE_MILLISECONDS,
+                TimeUnit.MILLISECONDS,
+                ioQueue,
+                new TaskThreadFactory("nitro-io", IO_THREAD_STACK_SIZE_BYTES),
+                ioQueue);
+        ioQueue.setExecutor(executor);
+        return executor;
+    }
+
+    // ThreadPoolExecutor only grows past its core size when the queue refuses work. This queue
+    // refuses it while no worker is waiting for it and the pool is below its limit, which starts
+    // a thread only when every existing one is busy. Work that finds every thread busy is queued
+    // from the rejection callback, up to the lane's capacity; past that the lane's rejection
+    // policy applies, as it does on the blocking lane.
+    @SuppressWarnings("serial")
+    static final class IoWorkQueue extends LinkedBlockingQueue<Runnable> implements RejectedExecutionHandler {
+
+        @NonNull
+        private final AtomicInteger idleWorkers = new AtomicInteger(0);
+
+        @NonNull
+        private final RejectedExecutionHandler overflowHandler;
+
+        private final int capacity;
+
+        @Nullable
+        private volatile ThreadPoolExecutor executor = null;
+
+        IoWorkQueue(int capacity, @NonNull RejectedExecutionHandler overflowHandler) {
+            super(capacity);
+            this.capacity = capacity;
+            this.overflowHandler = overflowHandler;
+        }
+
+        int getCapacity() {
+            return capacity;
+        }
+
+        // Queues without the grow-first check, for rejection policies that make room themselves.
+        boolean enqueue(@NonNull Runnable runnable) {
+            return super.offer(runnable);
+        }
+
+        void setExecutor(@NonNull ThreadPoolExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public boolean offer(@NonNull Runnable runnable) {
+            ThreadPoolExecutor pool = executor;
+            if (pool != null && idleWorkers.get() <= size() && pool.getPoolSize() < pool.getMaximumPoolSize()) {
+                return false;
+            }
+            return super.offer(runnable);
+        }
+
+        @NonNull
+        @Override
+        public Runnable take() throws InterruptedException {
+            idleWorkers.incrementAndGet();
+            try {
+                return super.take();
+            } finally {
+                idleWorkers.decrementAndGet();
+            }
+        }
+
+        @Nullable
+        @Override
+        public Runnable poll(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+            idleWorkers.incrementAndGet();
+            try {
+                return super.poll(timeout, unit);
+            } finally {
+                idleWorkers.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void rejectedExecution(@NonNull Runnable runnable, @NonNull ThreadPoolExecutor pool) {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("The IO lane has been shut down");
+            }
+
+            if (!super.offer(runnable)) {
+                overflowHandler.rejectedExecution(runnable, pool);
+            }
+        }
+    }
+
+    static boolean isAboveHighWaterMark(int queueDepth, int queueCapacity) {
+        return queueCapacity != Integer.MAX_VALUE && queueDepth >= queueCapacity * HIGH_WATER_MARK;
+    }
+
+    private static int calculateBlockingThreadLimit() {
+        return Math.min(Cpu.getNumberOfProcessorCores() * BLOCKING_THREAD_LIMIT_MULTIPLIER, MAX_BLOCKING_THREAD_LIMIT);
+    }
+
+    private static int calculateAdaptiveBlockingThreadLimit() {
+        return Math.min(Cpu.getNumberOfProcessorCores() * BLOCKING_THREAD_LIMIT_MULTIPLIER, MAX_ADAPTIVE_BLOCKING_THREAD_LIMIT);
+    }
+
+    public static class Builder {
+
+        private int computeParallelism = Cpu.getNumberOfProcessorCores();
+        private int minBlockingThreads = Cpu.getNumberOfProcessorCores();
+        private int maxBlockingThreads = calculateAdaptiveBlockingThreadLimit();
+        private long keepAliveInMilliseconds = DEFAULT_KEEP_ALIVE_MILLISECONDS;
+        private int blockingQueueCapacity = Integer.MAX_VALUE;
+        private long blockTimeoutInMilliseconds = DEFAULT_BLOCK_TIMEOUT_MILLISECONDS;
+        private int ioThreadLimit = DEFAULT_IO_THREAD_LIMIT;
+        private int ioQueueCapacity = Integer.MAX_VALUE;
+
+        @NonNull
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.FAIL_FAST;
+
+        public Builder() {
+
+        }
+
+        @NonNull
+        public Builder setComputeParallelism(int computeParallelism) {
+            this.computeParallelism = computeParallelism;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBlockingThreadLimit(int blockingThreadLimit) {
+            return setBlockingThreadLimit(blockingThreadLimit, blockingThreadLimit);
+        }
+
+        @NonNull
+        public Builder setBlockingThreadLimit(int minBlockingThreads, int maxBlockingThreads) {
+            this.minBlockingThreads = minBlockingThreads;
+            this.maxBlockingThreads = maxBlockingThreads;
+            return this;
+        }
+
+        @NonNull
+        public Builder setKeepAlive(long keepAliveInMilliseconds) {
+            this.keepAliveInMilliseconds = keepAliveInMilliseconds;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBlockingQueueCapacity(int blockingQueueCapacity) {
+            this.blockingQueueCapacity = blockingQueueCapacity;
+            return this;
+        }
+
+        @NonNull
+        public Builder setRejectionPolicy(@NonNull RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBlockTimeout(long blockTimeoutInMilliseconds) {
+            this.blockTimeoutInMilliseconds = blockTimeoutInMilliseconds;
+            return this;
+        }
+
+        @NonNull
+        public Builder setIoThreadLimit(int ioThreadLimit) {
+            this.ioThreadLimit = ioThreadLimit;
+            return this;
+        }
+
+        @NonNull
+        public Builder setIoQueueCapacity(int ioQueueCapacity) {
+            this.ioQueueCapacity = ioQueueCapacity;
+            return this;
+        }
+
+        @NonNull
+        public LaneTaskScheduler build() {
+            return new LaneTaskScheduler(computeParallelism,
+                    minBlockingThreads,
+                    maxBlockingThreads,
+                    keepAliveInMilliseconds,
+                    blockingQueueCapacity,
+                    rejectionPolicy,
+                    blockTimeoutInMilliseconds,
+                    ioThreadLimit,
+                    ioQueueCapacity);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class LatencyHistogram {
+
+    // Log-linear buckets in the style of HdrHistogram: every power of two is split into
+    // HALF_SUB_BUCKET_COUNT linear sub-buckets, each at most 1/8 of its lowest value wide.
+    // Values are reported at the middle of their bucket, which keeps the relative error
+    // within about 6%.
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    private static final int MAX_VALUE_BITS = 40;
+    static final long MAX_VALUE = (1L << (MAX_VALUE_BITS + 1)) - 1L;
+    static final int BUCKET_COUNT = indexFor(MAX_VALUE) + 1;
+
+    @NonNull
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    @NonNull
+    private final AtomicLong totalMicroseconds = new AtomicLong(0L);
+
+    @NonNull
+    private final AtomicLong maxMicroseconds = new AtomicLong(0L);
+
+    void recordNanos(long nanos) {
+        long micros = Math.min(MAX_VALUE, Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos)));
+
+        counts.incrementAndGet(indexFor(micros));
+        totalMicroseconds.addAndGet(micros);
+
+        long currentMax;
+        while (micros > (currentMax = maxMicroseconds.get())) {
+            if (maxMicroseconds.compareAndSet(currentMax, micros)) {
+                break;
+            }
+        }
+    }
+
+    @NonNull
+    HistogramSnapshot snapshot() {
+        long[] snapshotCounts = new long[BUCKET_COUNT];
+        long totalCount = 0L;
+
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            snapshotCounts[index] = counts.get(index);
+            totalCount += snapshotCounts[index];
+        }
+
+        return new HistogramSnapshot(snapshotCounts, totalCount, totalMicroseconds.get(), maxMicroseconds.get());
+    }
+
+    void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            counts.set(index, 0L);
+        }
+        totalMicroseconds.set(0L);
+        maxMicroseconds.set(0L);
+    }
+
+    static int indexFor(long value) {
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+
+        if (highestBit < SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+
+        int shift = highestBit - SUB_BUCKET_BITS + 1;
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    static long middleValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+        long subBucket = index - (long) shift * HALF_SUB_BUCKET_COUNT;
+        long lowest = subBucket << shift;
+        long highest = ((subBucket + 1L) << shift) - 1L;
+        return (lowest + highest) >>> 1;
+    }
+}
@@ -0,0 +1,92 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.peridotapps.nitro.logging.Logger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class ListenerDispatcher implements Runnable {
+
+    static final int EVENT_STARTED = 1;
+    static final int EVENT_COMPLETED = 1 << 1;
+    static final int EVENT_FAILED = 1 << 2;
+
+    private static final int EVENT_MASK = EVENT_STARTED | EVENT_COMPLETED | EVENT_FAILED;
+    private static final int TERMINAL_EVENT_MASK = EVENT_COMPLETED | EVENT_FAILED;
+    private static final int SCHEDULED = 1 << 3;
+
+    @NonNull
+    private final CoreTask task;
+
+    @NonNull
+    private final AtomicInteger state = new AtomicInteger(0);
+
+    @Nullable
+    private volatile Throwable failure = null;
+
+    ListenerDispatcher(@NonNull CoreTask task) {
+        this.task = task;
+    }
+
+    // Events are recorded as bits and only a terminal event schedules a hop, so a task's
+    // started/completed (or started/failed) pair reaches its listeners in one dispatch.
+    void post(int event, @Nullable Throwable t) {
+        if (event == EVENT_FAILED) {
+            failure = t;
+        }
+
+        for (; ; ) {
+            int current = state.get();
+            boolean schedule = (event & TERMINAL_EVENT_MASK) != 0 && (current & SCHEDULED) == 0;
+            int next = current | event | (schedule ? SCHEDULED : 0);
+
+            if (state.compareAndSet(current, next)) {
+                if (schedule) {
+                    TaskManager.dispatch(this, task.getListenerThreadMode());
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        for (; ; ) {
+            int current = state.get();
+            int events = current & EVENT_MASK;
+
+            if (events == 0) {
+                if (state.compareAndSet(current, 0)) {
+                    return;
+                }
+            } else if (state.compareAndSet(current, SCHEDULED)) {
+                deliver(events);
+            }
+        }
+    }
+
+    private void deliver(int events) {
+        Task.TaskListener[] listeners = task.getListenerArray();
+        Throwable t = failure;
+
+        for (Task.TaskListener listener : listeners) {
+            try {
+                if ((events & EVENT_STARTED) != 0) {
+                    listener.started();
+                }
+
+                if ((events & EVENT_COMPLETED) != 0) {
+                    listener.completed();
+                }
+
+                if ((events & EVENT_FAILED) != 0 && t != null) {
+                    listener.failed(t);
+                }
+            } catch (Exception e) {
+                Logger.E(listener, e);
+            }
+        }
+    }
+}
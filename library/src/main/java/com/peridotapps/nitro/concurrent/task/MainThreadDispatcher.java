@@ -0,0 +1,101 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.annotation.SuppressLint;
+import android.os.Build;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+
+import com.peridotapps.nitro.logging.Logger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@SuppressLint("NewApi")
+final class MainThreadDispatcher implements Runnable, Choreographer.FrameCallback {
+
+    static final long DEFAULT_FRAME_BUDGET_MILLISECONDS = 6L;
+
+    @NonNull
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    @NonNull
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    @NonNull
+    private final Handler handler;
+
+    @Nullable
+    private volatile Choreographer choreographer = null;
+
+    private volatile long frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FRAME_BUDGET_MILLISECONDS);
+
+    MainThreadDispatcher(@NonNull Handler handler) {
+        this.handler = handler;
+    }
+
+    void enqueue(@NonNull Runnable runnable) {
+        pending.offer(runnable);
+
+        if (drainScheduled.compareAndSet(false, true)) {
+            scheduleDrain();
+        }
+    }
+
+    void setFrameBudget(long budgetInMilliseconds) {
+        this.frameBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, budgetInMilliseconds));
+    }
+
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    // Runs on the main thread the first time (and on every batch before API 16), where the
+    // main Choreographer can be captured; afterwards batches are aligned to frame callbacks.
+    @Override
+    public void run() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && choreographer == null) {
+            choreographer = Choreographer.getInstance();
+        }
+        drain();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        drain();
+    }
+
+    private void scheduleDrain() {
+        Choreographer frameChoreographer = choreographer;
+
+        if (frameChoreographer != null) {
+            frameChoreographer.postFrameCallback(this);
+        } else {
+            handler.post(this);
+        }
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + frameBudgetNanos;
+        Runnable runnable;
+
+        do {
+            runnable = pending.poll();
+            if (runnable != null) {
+                try {
+                    runnable.run();
+                } catch (RuntimeException e) {
+                    Logger.E(runnable, e);
+                }
+            }
+        } while (runnable != null && System.nanoTime() - deadline < 0L);
+
+        drainScheduled.set(false);
+
+        if (!pending.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+            scheduleDrain();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+import com.peridotapps.nitro.hardware.Cpu;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Hill-climbs the size of a pool between its bounds. Each sample compares throughput with the
+// previous one: a move that helped is repeated, a move that hurt is reversed, and a plateau
+// shrinks the pool unless the queue keeps getting longer. The pool only grows past the core
+// count while enough busy workers are blocked rather than running, and workers that sit idle
+// with nothing queued are given back. Sampling runs on the timing wheel and stops while the
+// pool is idle.
+final class PoolSizeController implements Runnable {
+
+    static final long SAMPLE_INTERVAL_MILLISECONDS = 500L;
+
+    private static final double SIGNIFICANT_CHANGE = 0.05D;
+    private static final int GROW_DIVISOR = 4;
+    private static final int SHRINK_DIVISOR = 8;
+    private static final double MIN_BLOCKED_RATIO_TO_GROW = 0.5D;
+
+    @NonNull
+    private final ThreadPoolExecutor executor;
+
+    @NonNull
+    private final TaskThreadFactory threadFactory;
+
+    @NonNull
+    private final AtomicBoolean sampling = new AtomicBoolean(false);
+
+    private final int minimumSize;
+    private final int maximumSize;
+    private final int processorCores;
+
+    private long lastSampleNanos;
+    private long lastCompletedCount;
+    private double lastThroughput;
+    private int lastQueueDepth;
+    private int direction;
+
+    PoolSizeController(@NonNull ThreadPoolExecutor executor, @NonNull TaskThreadFactory threadFactory, int minimumSize, int maximumSize) {
+        this.executor = executor;
+        this.threadFactory = threadFactory;
+        this.processorCores = Math.max(1, Cpu.getNumberOfProcessorCores());
+        this.minimumSize = Math.max(1, minimumSize);
+        this.maximumSize = Math.max(this.minimumSize, maximumSize);
+    }
+
+    void onExecute() {
+        if (!sampling.get() && sampling.compareAndSet(false, true)) {
+            lastSampleNanos = System.nanoTime();
+            lastCompletedCount = executor.getCompletedTaskCount();
+            lastThroughput = 0.0D;
+            lastQueueDepth = 0;
+            direction = 0;
+            TaskManager.schedule(this, SAMPLE_INTERVAL_MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (executor.isShutdown()) {
+            sampling.set(false);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long completed = executor.getCompletedTaskCount();
+        double throughput = (completed - lastCompletedCount) * (double) TimeUnit.SECONDS.toNanos(1L) / Math.max(1L, now - lastSampleNanos);
+        int queueDepth = executor.getQueue()
+                .size();
+        int activeThreads = executor.getActiveCount();
+        int size = executor.getMaximumPoolSize();
+
+        if (queueDepth == 0 && activeThreads == 0) {
+            sampling.set(false);
+            return;
+        }
+
+        int target = nextSize(size, throughput, completed - lastCompletedCount, queueDepth, activeThreads);
+
+        // Workers that are mostly running rather than blocked are already competing for the
+        // cores; more of them cannot raise throughput, whatever the last move appeared to do.
+        if (target > size && size >= processorCores && threadFactory.countBlockedThreads() < activeThreads * MIN_BLOCKED_RATIO_TO_GROW) {
+            target = size;
+        }
+
+        resize(target);
+
+        lastSampleNanos = now;
+        lastCompletedCount = completed;
+        lastThroughput = throughput;
+        lastQueueDepth = queueDepth;
+
+        TaskManager.schedule(this, SAMPLE_INTERVAL_MILLISECONDS);
+    }
+
+    private int nextSize(int size, double throughput, long completedInSample, int queueDepth, int activeThreads) {
+        int growStep = Math.max(1, size / GROW_DIVISOR);
+        int shrinkStep = Math.max(1, size / SHRINK_DIVISOR);
+
+        if (queueDepth == 0) {
+            direction = 0;
+            return (activeThreads < size / 2) ? size - shrinkStep : size;
+        }
+
+        if (direction == 0 || lastThroughput == 0.0D) {
+            direction = 1;
+            return size + growStep;
+        }
+
+        // Completions per sample behave roughly like a Poisson count, so with few of them a
+        // swing of several percent is noise; the bar is raised to two standard deviations.
+        double threshold = Math.max(SIGNIFICANT_CHANGE, 2.0D / Math.sqrt(Math.max(1L, completedInSample)));
+        double change = (throughput - lastThroughput) / lastThroughput;
+
+        if (change > threshold) {
+            return (direction > 0) ? size + growStep : size - shrinkStep;
+        }
+
+        if (change < -threshold) {
+            direction = -direction;
+            return (direction > 0) ? size + growStep : size - shrinkStep;
+        }
+
+        // Flat throughput: threads added last time bought nothing, so give them back, unless the
+        // backlog is still growing, which means the pool is simply too small for the load.
+        if (queueDepth > lastQueueDepth) {
+            direction = 1;
+            return size + growStep;
+        }
+
+        direction = -1;
+        return size - shrinkStep;
+    }
+
+    private void resize(int target) {
+        int size = executor.getMaximumPoolSize();
+        int clamped = Math.max(minimumSize, Math.min(maximumSize, target));
+
+        if (clamped > size) {
+            executor.setMaximumPoolSize(clamped);
+            executor.setCorePoolSize(clamped);
+        } else if (clamped < size) {
+            executor.setCorePoolSize(clamped);
+            executor.setMaximumPoolSize(clamped);
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+class QueuedTask<T> implements Runnable {
+
+    private static final long NO_RETRY = -1L;
+
+    @NonNull
+    private static final AtomicLong sequenceGenerator = new AtomicLong(0L);
+
+    @NonNull
+    private static final ThreadLocal<QueuedTask<?>> currentSubmission = new ThreadLocal<>();
+
+    @NonNull
+    private volatile CoreTask task;
+
+    @Nullable
+    private final CallableTask<T> callableTask;
+
+    @NonNull
+    private final TaskResult<T> result = new TaskResult<>();
+
+    @NonNull
+    private final TaskPriority priority;
+
+    @NonNull
+    private final DeadlinePolicy deadlinePolicy;
+
+    @NonNull
+    private final TaskMode mode;
+
+    @Nullable
+    private final String coalesceKey;
+
+    @Nullable
+    private final String strandKey;
+
+    private final long deadlineNanos;
+    private final long sequence;
+
+    private volatile long dispatchNanos;
+
+    @Nullable
+    private volatile Timeout delayTimeout = null;
+
+    @Nullable
+    private CancellationToken cancellationToken = null;
+
+    @Nullable
+    private Runnable cancellationListener = null;
+
+    private boolean claimed = false;
+
+    private int attempts = 0;
+
+    private long retryDelayInMilliseconds = NO_RETRY;
+
+    QueuedTask(@NonNull RunnableTask task) {
+        this(task, null, task.getCoalesceKey());
+    }
+
+    QueuedTask(@NonNull CallableTask<T> task) {
+        this(task, task, null);
+    }
+
+    private QueuedTask(@NonNull CoreTask task, @Nullable CallableTask<T> callableTask, @Nullable String coalesceKey) {
+        this.task = task;
+        this.callableTask = callableTask;
+        this.coalesceKey = coalesceKey;
+        this.strandKey = task.getStrand();
+        this.priority = task.getPriority();
+        this.deadlinePolicy = task.getDeadlinePolicy();
+        this.mode = task.getTaskMode();
+        this.deadlineNanos = task.getDeadlineNanos();
+        this.sequence = sequenceGenerator.incrementAndGet();
+        this.dispatchNanos = System.nanoTime();
+        this.result.setCancellationHook(this::onResultCancelled);
+    }
+
+    @Override
+    public void run() {
+        if (result.isDone() || !claim()) {
+            return;
+        }
+
+        if (coalesceKey != null) {
+            TaskManager.releaseCoalesceKey(coalesceKey, this);
+        }
+
+        CoreTask task = this.task;
+        delayTimeout = null;
+        if (task.getDelayedSubmission() == this) {
+            task.setDelayedSubmission(null);
+        }
+
+        if (task.isCancelled()) {
+            cancelBeforeStart(task);
+            return;
+        }
+
+        TaskMetrics metrics = TaskManager.getTaskMetrics();
+        long startNanos = System.nanoTime();
+
+        if (deadlinePolicy == DeadlinePolicy.DROP && isLate(startNanos)) {
+            detachCancellationToken();
+            drop();
+            if (metrics.isEnabled()) {
+                metrics.recordDropped(mode, startNanos - dispatchNanos);
+            }
+            return;
+        }
+
+        if (!task.tryClaimRun()) {
+            detachCancellationToken();
+            result.completeExceptionally(new IllegalStateException("Requested task (" + task.getTaskId() + ") is already running"));
+            return;
+        }
+
+        RetryPolicy retryPolicy = task.getRetryPolicy();
+        CircuitBreaker circuitBreaker = (retryPolicy != null) ? retryPolicy.getCircuitBreaker() : null;
+
+        if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+            task.transitionFromRunning(TaskState.FAILED);
+            detachCancellationToken();
+            failOpenCircuit(task);
+            return;
+        }
+
+        attempts++;
+
+        CancellationToken token = task.getCancellationToken();
+        CancellationToken previousToken = (token != null) ? CancellationToken.enter(token) : null;
+        QueuedTask<?> previousSubmission = currentSubmission.get();
+        currentSubmission.set(this);
+
+        T value = null;
+        Throwable thrown = null;
+        try {
+            if (callableTask != null) {
+                value = callableTask.callClaimed();
+            } else {
+                task.runClaimed();
+            }
+        } catch (Throwable t) {
+            thrown = t;
+        } finally {
+            currentSubmission.set(previousSubmission);
+            if (token != null) {
+                CancellationToken.exit(previousToken);
+            }
+            detachCancellationToken();
+        }
+
+        Throwable failure = (thrown != null) ? thrown : task.getFailure();
+
+        if (metrics.isEnabled()) {
+            metrics.recordExecution(mode, startNanos - dispatchNanos, System.nanoTime() - startNanos, failure != null);
+        }
+
+        if (circuitBreaker != null) {
+            if (task.isCancelled()) {
+                circuitBreaker.releaseProbe();
+            } else if (failure == null) {
+                circuitBreaker.recordSuccess();
+            } else {
+                circuitBreaker.recordFailure();
+            }
+        }
+
+        long retryDelay = retryDelayInMilliseconds;
+        retryDelayInMilliseconds = NO_RETRY;
+
+        if (retryDelay != NO_RETRY && thrown == null && !task.isCancelled()) {
+            scheduleRetry(task, retryDelay);
+            return;
+        }
+
+        if (thrown != null || (failure != null && (callableTask == null || !callableTask.hasDefaultResult()))) {
+            result.completeExceptionally(failure);
+        } else {
+            result.complete(value);
+        }
+
+        // An Error is still the worker's to see once the result has been settled, so that
+        // nothing waiting on the result is left hanging.
+        if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+    }
+
+    // Called from CoreTask.run when an attempt fails. If the task's retry policy wants another
+    // attempt the failure is kept from the listeners and the submission is re-armed on the timing
+    // wheel once the attempt has unwound, so no worker sits idle through the backoff.
+    static boolean deferFailure(@NonNull CoreTask task, @NonNull Throwable t) {
+        QueuedTask<?> submission = currentSubmission.get();
+        if (submission == null || submission.task != task) {
+            return false;
+        }
+
+        RetryPolicy policy = task.getRetryPolicy();
+        if (policy == null || task.isCancelled() || !policy.shouldRetry(submission.attempts, t)) {
+            return false;
+        }
+
+        submission.retryDelayInMilliseconds = policy.getBackoff(submission.attempts);
+        return true;
+    }
+
+    void reject(@NonNull Exception exception) {
+        if (!claim()) {
+            return;
+        }
+
+        if (coalesceKey != null) {
+            TaskManager.releaseCoalesceKey(coalesceKey, this);
+        }
+
+        CoreTask task = this.task;
+        detachCancellationToken();
+        task.failQueued();
+        result.completeExceptionally(exception);
+        task.onFailed(exception);
+
+        TaskMetrics metrics = TaskManager.getTaskMetrics();
+        if (metrics.isEnabled()) {
+            metrics.recordRejected(mode);
+        }
+    }
+
+    // Ties this submission to the task's cancellation token, so cancelling the token fails the
+    // result straight away instead of leaving it queued until a worker reaches it.
+    void attachCancellationToken() {
+        CancellationToken token = task.getCancellationToken();
+        if (token != null) {
+            Runnable listener = this::onTokenCancelled;
+            synchronized (this) {
+                this.cancellationToken = token;
+                this.cancellationListener = listener;
+            }
+            token.addCancellationListener(listener);
+        }
+    }
+
+    // Parks the submission on the timing wheel for a delay or a retry backoff. The task keeps a
+    // reference to it so that cancelling the task while it waits fails the result at once.
+    void scheduleDelayed(long delayInMilliseconds) {
+        CoreTask task = this.task;
+        task.setDelayedSubmission(this);
+        delayTimeout = TaskManager.schedule(this, delayInMilliseconds, mode);
+
+        if (task.isCancelled()) {
+            cancelDelay();
+        }
+    }
+
+    // Called when the task is cancelled. Only a submission still waiting on the timing wheel is
+    // failed here; once the timeout has fired, run() sees the cancellation itself.
+    void cancelDelay() {
+        Timeout timeout = delayTimeout;
+        if (timeout == null || !timeout.cancel() || !claim()) {
+            return;
+        }
+
+        delayTimeout = null;
+        CoreTask task = this.task;
+        if (task.getDelayedSubmission() == this) {
+            task.setDelayedSubmission(null);
+        }
+
+        if (coalesceKey != null) {
+            TaskManager.releaseCoalesceKey(coalesceKey, this);
+        }
+        detachCancellationToken();
+        failCancelled(task);
+    }
+
+    void markDispatched() {
+        this.dispatchNanos = System.nanoTime();
+    }
+
+    // Folds a duplicate submission into this pending execution. KEEP_FIRST adopts the duplicate's
+    // listeners; LATEST_WINS swaps in the newer task (and with it the newer input) and hands it
+    // the listeners gathered so far. Either way every listener hears about the single execution.
+    // The submission is already queued, so it keeps the mode, priority, deadline and strand it
+    // was dispatched with; only the task that runs, and with it the input, is replaced.
+    synchronized boolean absorb(@NonNull RunnableTask duplicate) {
+        if (claimed || result.isDone()) {
+            return false;
+        }
+
+        CoreTask current = task;
+        if (current.isCancelled()) {
+            return false;
+        }
+
+        if (current == duplicate) {
+            return true;
+        }
+
+        if (duplicate.getCoalescePolicy() == CoalescePolicy.LATEST_WINS && current instanceof RunnableTask) {
+            duplicate.addListeners(Arrays.asList(current.getListenerArray()));
+            duplicate.setDelayedSubmission(current.getDelayedSubmission());
+            current.setDelayedSubmission(null);
+            duplicate.markQueued();
+            task = duplicate;
+            ((RunnableTask) current).onCoalesced(duplicate);
+        } else {
+            current.addListeners(Arrays.asList(duplicate.getListenerArray()));
+            if (current instanceof RunnableTask) {
+                duplicate.onCoalesced((RunnableTask) current);
+            }
+        }
+
+        return true;
+    }
+
+    @NonNull
+    TaskResult<T> getResult() {
+        return result;
+    }
+
+    @NonNull
+    CoreTask getTask() {
+        return task;
+    }
+
+    @Nullable
+    String getStrandKey() {
+        return strandKey;
+    }
+
+    @NonNull
+    TaskPriority getPriority() {
+        return priority;
+    }
+
+    boolean hasDeadline() {
+        return deadlineNanos != CoreTask.NO_DEADLINE;
+    }
+
+    boolean isLate(long nowNanos) {
+        return hasDeadline() && nowNanos - deadlineNanos > 0;
+    }
+
+    long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    private void onResultCancelled() {
+        detachCancellationToken();
+        task.cancel();
+    }
+
+    private void onTokenCancelled() {
+        CoreTask task = this.task;
+
+        if (claim()) {
+            if (coalesceKey != null) {
+                TaskManager.releaseCoalesceKey(coalesceKey, this);
+            }
+            task.cancel();
+            failCancelled(task);
+        } else {
+            task.cancel();
+        }
+    }
+
+    private void scheduleRetry(@NonNull CoreTask task, long delayInMilliseconds) {
+        synchronized (this) {
+            claimed = false;
+        }
+
+        attachCancellationToken();
+        task.markQueued();
+        scheduleDelayed(delayInMilliseconds);
+    }
+
+    private void failOpenCircuit(@NonNull CoreTask task) {
+        RejectedExecutionException exception = new RejectedExecutionException("Circuit breaker is open; task " + task.getTaskId() + " was not run");
+        result.completeExceptionally(exception);
+        task.onFailed(exception);
+    }
+
+    private void cancelBeforeStart(@NonNull CoreTask task) {
+        detachCancellationToken();
+        failCancelled(task);
+    }
+
+    private void failCancelled(@NonNull CoreTask task) {
+        CancellationException exception = new CancellationException("Task " + task.getTaskId() + " was cancelled before it started");
+        result.completeExceptionally(exception);
+        task.onFailed(exception);
+    }
+
+    private void detachCancellationToken() {
+        CancellationToken token;
+        Runnable listener;
+
+        synchronized (this) {
+            token = cancellationToken;
+            listener = cancellationListener;
+            cancellationToken = null;
+            cancellationListener = null;
+        }
+
+        if (token != null) {
+            token.removeCancellationListener(listener);
+        }
+    }
+
+    private synchronized boolean claim() {
+        if (claimed) {
+            return false;
+        }
+        claimed = true;
+        return true;
+    }
+
+    private void drop() {
+        CoreTask task = this.task;
+        TimeoutException exception = new TimeoutException("Task " + task.getTaskId() + " missed its deadline");
+        task.failQueued();
+        result.completeExceptionally(exception);
+        task.onFailed(exception);
+    }
+}
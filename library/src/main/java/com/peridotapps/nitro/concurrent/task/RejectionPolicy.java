@@ -0,0 +1,8 @@
+package com.peridotapps.nitro.concurrent.task;
+
+public enum RejectionPolicy {
+    CALLER_RUNS,
+    DROP_OLDEST,
+    BLOCK,
+    FAIL_FAST
+}
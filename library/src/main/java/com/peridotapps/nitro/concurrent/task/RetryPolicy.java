@@ -0,0 +1,151 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.peridotapps.nitro.function.Predicate;
+
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+public final class RetryPolicy {
+
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLISECONDS = 100L;
+    private static final long DEFAULT_MAX_BACKOFF_MILLISECONDS = 30000L;
+    private static final double DEFAULT_MULTIPLIER = 2.0D;
+    private static final double DEFAULT_JITTER = 0.5D;
+
+    @NonNull
+    private static final Random jitterRandom = new Random();
+
+    private final int maxAttempts;
+    private final long initialBackoffInMilliseconds;
+    private final long maxBackoffInMilliseconds;
+    private final double multiplier;
+    private final double jitter;
+
+    @Nullable
+    private final Predicate<Throwable> retryOn;
+
+    @Nullable
+    private final CircuitBreaker circuitBreaker;
+
+    private RetryPolicy(@NonNull Builder builder) {
+        this.maxAttempts = Math.max(1, builder.maxAttempts);
+        this.initialBackoffInMilliseconds = Math.max(0L, builder.initialBackoffInMilliseconds);
+        this.maxBackoffInMilliseconds = Math.max(this.initialBackoffInMilliseconds, builder.maxBackoffInMilliseconds);
+        this.multiplier = Math.max(1.0D, builder.multiplier);
+        this.jitter = Math.min(1.0D, Math.max(0.0D, builder.jitter));
+        this.retryOn = builder.retryOn;
+        this.circuitBreaker = builder.circuitBreaker;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    @Nullable
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    // Cancellations, rejections and an open circuit end the sequence regardless of the predicate;
+    // retrying any of them would only feed the storm the policy exists to prevent.
+    boolean shouldRetry(int attempt, @NonNull Throwable t) {
+        if (attempt >= maxAttempts
+                || t instanceof CancellationException
+                || t instanceof InterruptedException
+                || t instanceof RejectedExecutionException) {
+            return false;
+        }
+
+        if (circuitBreaker != null && circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            return false;
+        }
+
+        try {
+            return retryOn == null || retryOn.test(t);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Exponential backoff capped at the maximum, with the configured fraction of it randomised
+    // so that tasks which failed together do not all come back on the same tick.
+    long getBackoff(int attempt) {
+        double backoff = initialBackoffInMilliseconds * Math.pow(multiplier, Math.max(0, attempt - 1));
+        long capped = (long) Math.min(backoff, maxBackoffInMilliseconds);
+
+        if (jitter == 0.0D || capped == 0L) {
+            return capped;
+        }
+
+        double random;
+        synchronized (jitterRandom) {
+            random = jitterRandom.nextDouble();
+        }
+        return capped - (long) (capped * jitter * random);
+    }
+
+    public static class Builder {
+
+        private int maxAttempts = 3;
+        private long initialBackoffInMilliseconds = DEFAULT_INITIAL_BACKOFF_MILLISECONDS;
+        private long maxBackoffInMilliseconds = DEFAULT_MAX_BACKOFF_MILLISECONDS;
+        private double multiplier = DEFAULT_MULTIPLIER;
+        private double jitter = DEFAULT_JITTER;
+
+        @Nullable
+        private Predicate<Throwable> retryOn = null;
+
+        @Nullable
+        private CircuitBreaker circuitBreaker = null;
+
+        public Builder() {
+
+        }
+
+        @NonNull
+        public Builder setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBackoff(long initialBackoffInMilliseconds, long maxBackoffInMilliseconds) {
+            this.initialBackoffInMilliseconds = initialBackoffInMilliseconds;
+            this.maxBackoffInMilliseconds = maxBackoffInMilliseconds;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        @NonNull
+        public Builder setJitter(double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        @NonNull
+        public Builder setRetryOn(@Nullable Predicate<Throwable> retryOn) {
+            this.retryOn = retryOn;
+            return this;
+        }
+
+        @NonNull
+        public Builder setCircuitBreaker(@Nullable CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        @NonNull
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
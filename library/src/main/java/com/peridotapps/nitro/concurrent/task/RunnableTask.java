@@ -5,15 +5,19 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class RunnableTask extends CoreTask implements Runnable, Comparable<RunnableTask> {
 
-    private TaskMode taskMode = TaskMode.NEW;
     private final AtomicLong delay = new AtomicLong(0L);
 
+    @Nullable
+    private volatile String coalesceKey = null;
+
+    @NonNull
+    private volatile CoalescePolicy coalescePolicy = CoalescePolicy.KEEP_FIRST;
+
     public static RunnableTask createActionRunnable(Runnable runnable) {
         return new RunnableTask() {
             @Override
@@ -45,6 +49,11 @@ public abstract class RunnableTask extends CoreTask implements Runnable, Compara
         TaskManager.execute(this);
     }
 
+    @NonNull
+    protected final TaskResult<Void> executeForResult() {
+        return TaskManager.submit(this);
+    }
+
     @CallSuper
     public RunnableTask setTaskDelay(long delayInMilliseconds) {
         synchronized (this.delay) {
@@ -53,9 +62,81 @@ public abstract class RunnableTask extends CoreTask implements Runnable, Compara
         return this;
     }
 
+    @NonNull
+    @CallSuper
+    public RunnableTask setCoalesceKey(@Nullable String key) {
+        return setCoalesceKey(key, CoalescePolicy.KEEP_FIRST);
+    }
+
+    @NonNull
+    @CallSuper
+    public RunnableTask setCoalesceKey(@Nullable String key, @NonNull CoalescePolicy policy) {
+        this.coalesceKey = key;
+        this.coalescePolicy = policy;
+        return this;
+    }
+
+    @NonNull
+    @CallSuper
+    @Override
+    public RunnableTask setTaskThreadMode(@NonNull TaskMode mode) {
+        super.setTaskThreadMode(mode);
+        return this;
+    }
+
+    @NonNull
+    @CallSuper
+    @Override
+    public RunnableTask setListenerThreadMode(@NonNull TaskMode mode) {
+        super.setListenerThreadMode(mode);
+        return this;
+    }
+
+    @NonNull
+    @CallSuper
+    @Override
+    public RunnableTask setPriority(@NonNull TaskPriority priority) {
+        super.setPriority(priority);
+        return this;
+    }
+
+    @NonNull
+    @CallSuper
+    @Override
+    public RunnableTask setDeadline(long deadlineInMilliseconds, @NonNull DeadlinePolicy policy) {
+        super.setDeadline(deadlineInMilliseconds, policy);
+        return this;
+    }
+
+    @NonNull
+    @CallSuper
+    @Override
+    public RunnableTask clearDeadline() {
+        super.clearDeadline();
+        return this;
+    }
+
+    @NonNull
+    @CallSuper
+    @Override
+    public RunnableTask setCancellationToken(@Nullable CancellationToken token) {
+        super.setCancellationToken(token);
+        return this;
+    }
+
+    @NonNull
     @CallSuper
-    public RunnableTask setTaskThreadMode(TaskMode mode) {
-        this.taskMode = mode;
+    @Override
+    public RunnableTask setRetryPolicy(@Nullable RetryPolicy policy) {
+        super.setRetryPolicy(policy);
+        return this;
+    }
+
+    @NonNull
+    @CallSuper
+    @Override
+    public RunnableTask setStrand(@Nullable String key) {
+        super.setStrand(key);
         return this;
     }
 
@@ -93,22 +174,28 @@ public abstract class RunnableTask extends CoreTask implements Runnable, Compara
 
     @Override
     public final int compareTo(@NonNull RunnableTask o) {
-        return this.getTaskId()
-                .compareTo(o.getTaskId());
+        return compareScheduling(o);
     }
 
     @Override
     public final boolean equals(Object obj) {
         if (obj instanceof RunnableTask) {
-            return ((RunnableTask) obj).getTaskId()
-                    .equals(this.getTaskId());
+            return hasSameTaskId((RunnableTask) obj);
         }
         return false;
     }
 
+    @Nullable
+    public final String getCoalesceKey() {
+        return coalesceKey;
+    }
+
     @NonNull
-    public final TaskMode getTaskMode() {
-        return taskMode;
+    public final CoalescePolicy getCoalescePolicy() {
+        return coalescePolicy;
+    }
+
+    protected void onCoalesced(@NonNull RunnableTask survivor) {
     }
 
     public long getDelayInMilliseconds() {
@@ -118,70 +205,4 @@ public abstract class RunnableTask extends CoreTask implements Runnable, Compara
         }
         return delayInMilliseconds;
     }
-
-    @Override
-    protected void notifyStarted(@NonNull List<TaskListener> listeners) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                for (TaskListener listener : listeners) {
-                    notifyTaskStarted(listener);
-                }
-            }
-        };
-    }
-
-    @Override
-    protected void notifyCompleted(@NonNull List<TaskListener> listeners) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                for (TaskListener listener : listeners) {
-                    notifyTaskCompleted(listener);
-                }
-            }
-        };
-    }
-
-    @Override
-    protected void notifyFailure(@NonNull List<TaskListener> listeners, @NonNull Throwable t) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                for (TaskListener listener : listeners) {
-                    notifyTaskFailed(listener, t);
-                }
-            }
-        };
-    }
-
-    @Override
-    protected void notifyTaskStarted(@NonNull TaskListener listener) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                listener.started();
-            }
-        }.execute();
-    }
-
-    @Override
-    protected void notifyTaskCompleted(@NonNull TaskListener listener) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                listener.completed();
-            }
-        }.execute();
-    }
-
-    @Override
-    protected void notifyTaskFailed(@NonNull TaskListener listener, @NonNull Throwable t) {
-        new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                listener.failed(t);
-            }
-        }.execute();
-    }
 }
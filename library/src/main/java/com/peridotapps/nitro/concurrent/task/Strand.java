@@ -0,0 +1,229 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.peridotapps.nitro.logging.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A serial executor multiplexed onto the shared lanes. At most one drain of a strand is queued
+// or running at any time, so work submitted under the same key runs in order and never overlaps,
+// without a thread of its own and without a lock held by the work itself. Each piece of work
+// still runs on its own lane: when the next one asks for a different mode the drain hands the
+// strand over to that lane rather than running it where it is.
+final class Strand implements Runnable {
+
+    private static final int RETIRED = -1;
+
+    // A busy strand hands its thread back after a batch so other strands and plain tasks
+    // queued on the same lane are not starved behind it.
+    private static final int MAX_BATCH_SIZE = 32;
+
+    @NonNull
+    private static final ConcurrentHashMap<String, Strand> strands = new ConcurrentHashMap<>();
+
+    @NonNull
+    private static final ThreadLocal<String> currentStrandKey = new ThreadLocal<>();
+
+    @NonNull
+    private final String key;
+
+    @NonNull
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+
+    @NonNull
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+
+    @NonNull
+    private volatile TaskMode mode = TaskMode.NEW;
+
+    private volatile boolean rejectionHandled = false;
+
+    // Taken off the queue by a drain that then handed over to another lane; only ever touched by
+    // the drain that currently owns the strand.
+    @Nullable
+    private Entry carried = null;
+
+    private Strand(@NonNull String key) {
+        this.key = key;
+    }
+
+    static void dispatch(@NonNull String key, @NonNull Runnable runnable, @NonNull TaskMode mode) {
+        for (; ; ) {
+            Strand strand = strands.get(key);
+
+            if (strand == null) {
+                Strand created = new Strand(key);
+                strand = strands.putIfAbsent(key, created);
+                if (strand == null) {
+                    strand = created;
+                }
+            }
+
+            if (strand.offer(runnable, mode)) {
+                return;
+            }
+
+            strands.remove(key, strand);
+        }
+    }
+
+    static int getActiveCount() {
+        return strands.size();
+    }
+
+    static boolean isDraining(@NonNull String key) {
+        return key.equals(currentStrandKey.get());
+    }
+
+    // The count is raised before the runnable is queued, so a drain that retires the strand at
+    // zero can never strand work that a concurrent offer has already committed to it.
+    private boolean offer(@NonNull Runnable runnable, @NonNull TaskMode mode) {
+        for (; ; ) {
+            int count = pendingCount.get();
+
+            if (count == RETIRED) {
+                return false;
+            }
+
+            if (pendingCount.compareAndSet(count, count + 1)) {
+                pending.offer(new Entry(runnable, mode));
+                if (count == 0) {
+                    this.mode = mode;
+                    schedule();
+                }
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        String previousKey = currentStrandKey.get();
+        currentStrandKey.set(key);
+
+        try {
+            for (int processed = 1; ; processed++) {
+                Entry entry = next();
+
+                if (entry.mode != mode) {
+                    carried = entry;
+                    mode = entry.mode;
+                    reschedule();
+                    return;
+                }
+
+                Runnable runnable = entry.runnable;
+                boolean contained = false;
+                boolean drained;
+
+                try {
+                    runnable.run();
+                    contained = true;
+                } catch (RuntimeException e) {
+                    Logger.E(runnable, e);
+                    contained = true;
+                } finally {
+                    // The runnable is counted whatever it threw. An Error is left to reach the
+                    // worker, but the rest of the strand moves to a fresh drain first.
+                    drained = completeOne();
+                    if (!contained && !drained) {
+                        reschedule();
+                    }
+                }
+
+                if (drained) {
+                    return;
+                }
+
+                if (processed >= MAX_BATCH_SIZE) {
+                    reschedule();
+                    return;
+                }
+            }
+        } finally {
+            currentStrandKey.set(previousKey);
+        }
+    }
+
+    // Called by the rejection handler when a lane refuses or evicts the drain itself. Everything
+    // waiting on the strand is failed the way a rejected task would be, instead of being left
+    // queued behind a drain that will never run.
+    void reject(@NonNull RejectedExecutionException exception) {
+        rejectionHandled = true;
+        for (; ; ) {
+            Runnable runnable = next().runnable;
+
+            if (runnable instanceof QueuedTask) {
+                ((QueuedTask<?>) runnable).reject(exception);
+            }
+
+            if (completeOne()) {
+                return;
+            }
+        }
+    }
+
+    private void schedule() {
+        TaskManager.dispatchToLane(this, mode);
+    }
+
+    // Re-scheduling from inside a drain runs on a worker, so a rejection must not escape into it.
+    // The rejection handler normally fails the pending work itself through reject(); lanes that
+    // throw without consulting it (a shut down ForkJoinPool) are covered here.
+    private void reschedule() {
+        rejectionHandled = false;
+        try {
+            schedule();
+        } catch (RejectedExecutionException e) {
+            if (!rejectionHandled) {
+                reject(e);
+            }
+        }
+    }
+
+    // An offer that has raised the count may not have queued its runnable yet; it is at most a
+    // couple of instructions behind, so yield until it lands.
+    @NonNull
+    private Entry next() {
+        Entry entry = carried;
+        if (entry != null) {
+            carried = null;
+            return entry;
+        }
+
+        while ((entry = pending.poll()) == null) {
+            Thread.yield();
+        }
+        return entry;
+    }
+
+    private boolean completeOne() {
+        if (pendingCount.decrementAndGet() != 0) {
+            return false;
+        }
+
+        if (pendingCount.compareAndSet(0, RETIRED)) {
+            strands.remove(key, this);
+        }
+        return true;
+    }
+
+    private static final class Entry {
+
+        @NonNull
+        final Runnable runnable;
+
+        @NonNull
+        final TaskMode mode;
+
+        Entry(@NonNull Runnable runnable, @NonNull TaskMode mode) {
+            this.runnable = runnable;
+            this.mode = mode;
+        }
+    }
+}
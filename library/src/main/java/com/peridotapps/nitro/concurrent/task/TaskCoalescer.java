@@ -0,0 +1,39 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+final class TaskCoalescer {
+
+    @NonNull
+    private final ConcurrentHashMap<String, QueuedTask<Void>> pendingTasks = new ConcurrentHashMap<>();
+
+    // Returns the queued task that will carry the submission: either the candidate itself, now
+    // registered under the key, or an earlier pending task that absorbed it. Entries that have
+    // already started (or were cancelled while waiting) are evicted and the candidate takes over.
+    @NonNull
+    QueuedTask<Void> coalesce(@NonNull String key, @NonNull QueuedTask<Void> candidate, @NonNull RunnableTask task) {
+        for (; ; ) {
+            QueuedTask<Void> pending = pendingTasks.putIfAbsent(key, candidate);
+
+            if (pending == null) {
+                return candidate;
+            }
+
+            if (pending.absorb(task)) {
+                return pending;
+            }
+
+            pendingTasks.remove(key, pending);
+        }
+    }
+
+    void release(@NonNull String key, @NonNull QueuedTask<?> queuedTask) {
+        pendingTasks.remove(key, queuedTask);
+    }
+
+    int getPendingCount() {
+        return pendingTasks.size();
+    }
+}
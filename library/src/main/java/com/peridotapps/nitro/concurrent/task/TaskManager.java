@@ -1,40 +1,40 @@
 package com.peridotapps.nitro.concurrent.task;
 
+import android.annotation.SuppressLint;
 import android.arch.lifecycle.Lifecycle;
 import android.arch.lifecycle.LifecycleObserver;
 import android.arch.lifecycle.OnLifecycleEvent;
 import android.arch.lifecycle.ProcessLifecycleOwner;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import com.peridotapps.nitro.hardware.Cpu;
-import com.peridotapps.nitro.random.RandomString;
+import com.peridotapps.nitro.identifier.IdGenerator;
+import com.peridotapps.nitro.identifier.SequentialIdGenerator;
 
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicReference;
 
-import static com.peridotapps.nitro.string.CharacterSet.ALPHA_NUMERIC;
-
-final class TaskManager {
+public final class TaskManager {
 
     @NonNull
     private static final AtomicReference<TaskExecutor> sharedAtomicInstance = new AtomicReference<>(new TaskExecutor());
 
-    private static final int INITIAL_THREAD_POOL_SIZE = 0;
-    private static final int MAX_THREAD_POOL_SIZE = 24;
-    private static final int TASK_ID_MAX_LENGTH = 25;
-    private static final int TASK_ID_MIN_LENGTH = 10;
-    private static final int THREAD_POOL_SIZE_MULTIPLIER = 8;
+    @NonNull
+    private static final AtomicReference<IdGenerator> taskIdGenerator = new AtomicReference<>(new SequentialIdGenerator());
+
+    @NonNull
+    private static final TaskCoalescer taskCoalescer = new TaskCoalescer();
 
     @NonNull
-    private static final TimeUnit DEFAULT_TIME_UNIT = TimeUnit.MILLISECONDS;
+    private static final TaskMetrics taskMetrics = new TaskMetrics();
+
+
+    private TaskManager() {
+    }
 
     @NonNull
     private static TaskExecutor getSharedInstance() {
@@ -50,75 +50,230 @@ final class TaskManager {
         return instance;
     }
 
-    @Nullable
-    static String generateTaskId() {
-        return new RandomString()
-                .setCharacterSet(ALPHA_NUMERIC)
-                .setMinLength(TASK_ID_MIN_LENGTH)
-                .setMaxLength(TASK_ID_MAX_LENGTH)
-                .generate();
+    public static void setTaskScheduler(@NonNull TaskScheduler scheduler) {
+        getSharedInstance().setTaskScheduler(scheduler);
+    }
+
+    @NonNull
+    public static TaskScheduler getTaskScheduler() {
+        return getSharedInstance().getTaskScheduler();
+    }
+
+    @NonNull
+    public static TaskSchedulerStatistics getSchedulerStatistics() {
+        return getTaskScheduler().getStatistics();
+    }
+
+    public static boolean isBackpressured() {
+        return getTaskScheduler().isSaturated();
+    }
+
+    public static void setMainThreadFrameBudget(long budgetInMilliseconds) {
+        getSharedInstance()
+                .getMainThreadDispatcher()
+                .setFrameBudget(budgetInMilliseconds);
+    }
+
+    public static int getPendingMainThreadTaskCount() {
+        return getSharedInstance()
+                .getMainThreadDispatcher()
+                .getPendingCount();
+    }
+
+    @NonNull
+    public static TaskMetricsSnapshot getMetricsSnapshot() {
+        return taskMetrics.snapshot(getSchedulerStatistics());
+    }
+
+    public static void setMetricsEnabled(boolean enabled) {
+        taskMetrics.setEnabled(enabled);
+    }
+
+    public static void resetMetrics() {
+        taskMetrics.reset();
+    }
+
+    public static void setTaskIdGenerator(@NonNull IdGenerator generator) {
+        taskIdGenerator.set(generator);
+    }
+
+    public static int getPendingCoalescedTaskCount() {
+        return taskCoalescer.getPendingCount();
+    }
+
+    @NonNull
+    static TaskMetrics getTaskMetrics() {
+        return taskMetrics;
+    }
+
+    static long generateTaskId() {
+        return taskIdGenerator.get()
+                .nextId();
     }
 
     static void execute(@NonNull RunnableTask runnableTask) {
-        if (runnableTask.getTaskMode() == TaskMode.MAIN) {
-            executeOnMain(runnableTask, runnableTask.getDelayInMilliseconds());
+        submit(runnableTask);
+    }
+
+    @NonNull
+    static TaskResult<Void> submit(@NonNull RunnableTask runnableTask) {
+        inheritCancellationToken(runnableTask);
+        QueuedTask<Void> queuedTask = new QueuedTask<>(runnableTask);
+
+        String coalesceKey = runnableTask.getCoalesceKey();
+        if (coalesceKey != null) {
+            QueuedTask<Void> pending = taskCoalescer.coalesce(coalesceKey, queuedTask, runnableTask);
+            if (pending != queuedTask) {
+                return pending.getResult();
+            }
+        }
+
+        queuedTask.attachCancellationToken();
+        runnableTask.markQueued();
+
+        long delayInMilliseconds = runnableTask.getDelayInMilliseconds();
+
+        if (delayInMilliseconds > 0) {
+            queuedTask.scheduleDelayed(delayInMilliseconds);
         } else {
-            executeOnNew(runnableTask, runnableTask.getDelayInMilliseconds());
+            dispatch(queuedTask, runnableTask.getTaskMode());
         }
+
+        return queuedTask.getResult();
+    }
+
+    static void releaseCoalesceKey(@NonNull String key, @NonNull QueuedTask<?> queuedTask) {
+        taskCoalescer.release(key, queuedTask);
     }
 
     @Nullable
     static <T> T execute(@NonNull CallableTask<T> callableTask) throws ExecutionException, InterruptedException {
+        if (canRunInline(callableTask.getTaskMode(), callableTask.getStrand())) {
+            inheritCancellationToken(callableTask);
+            QueuedTask<T> queuedTask = new QueuedTask<>(callableTask);
+            queuedTask.attachCancellationToken();
+            queuedTask.run();
+            return queuedTask.getResult()
+                    .get();
+        }
+
         return getFuture(callableTask).get();
     }
 
     @NonNull
-    static <T> Future<T> getFuture(@NonNull CallableTask<T> callableTask) {
+    static <T> TaskResult<T> getFuture(@NonNull CallableTask<T> callableTask) {
+        inheritCancellationToken(callableTask);
+        QueuedTask<T> queuedTask = new QueuedTask<>(callableTask);
+        queuedTask.attachCancellationToken();
+        callableTask.markQueued();
+        dispatch(queuedTask, callableTask.getTaskMode());
+        return queuedTask.getResult();
+    }
+
+    @NonNull
+    public static Timeout schedule(@NonNull Runnable runnable, long delayInMilliseconds, @NonNull TaskMode mode) {
         return getSharedInstance()
-                .getExecutorServiceInstance()
-                .submit(callableTask);
+                .getTimingWheel()
+                .newTimeout(runnable, mode, delayInMilliseconds);
     }
 
-    private static void executeOnNew(@NonNull Runnable runnable, long delayInMilliseconds) {
-        if (delayInMilliseconds > 0) {
-            getSharedInstance()
-                    .getScheduledExecutorServiceInstance()
-                    .schedule(runnable, delayInMilliseconds, DEFAULT_TIME_UNIT);
+    public static long getScheduledTimeoutCount() {
+        return getSharedInstance()
+                .getTimingWheel()
+                .getActiveTimeoutCount();
+    }
+
+    @NonNull
+    static Timeout schedule(@NonNull Runnable runnable, long delayInMilliseconds) {
+        return getSharedInstance()
+                .getTimingWheel()
+                .newTimeout(runnable, null, delayInMilliseconds);
+    }
+
+    private static void inheritCancellationToken(@NonNull CoreTask task) {
+        if (task.getCancellationToken() == null) {
+            CancellationToken current = CancellationToken.current();
+            if (current != null) {
+                task.setCancellationToken(current);
+            }
+        }
+    }
+
+    // A caller that would block the main thread on a MAIN task, or park a worker on a nested
+    // result, runs the task in place instead so pool threads are never held hostage by waits.
+    // Strand tasks only run in place when the caller is already draining that strand, since
+    // anywhere else doing so would let them overlap the strand's own work.
+    private static boolean canRunInline(@NonNull TaskMode mode, @Nullable String strandKey) {
+        if (strandKey != null) {
+            return Strand.isDraining(strandKey);
+        }
+        return (mode == TaskMode.MAIN) ? isMainThread() : isWorkerThread();
+    }
+
+    private static boolean isMainThread() {
+        return Thread.currentThread() == Looper.getMainLooper()
+                .getThread();
+    }
+
+    @SuppressLint("NewApi")
+    private static boolean isWorkerThread() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof TaskThreadFactory.TaskThread
+                || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && thread instanceof ForkJoinWorkerThread);
+    }
+
+    public static void dispatch(@NonNull Runnable runnable, @NonNull TaskMode mode) {
+        String strandKey = null;
+
+        if (runnable instanceof QueuedTask) {
+            QueuedTask<?> queuedTask = (QueuedTask<?>) runnable;
+            queuedTask.markDispatched();
+            strandKey = queuedTask.getStrandKey();
+        }
+
+        dispatch(runnable, mode, strandKey);
+    }
+
+    public static void dispatch(@NonNull Runnable runnable, @NonNull TaskMode mode, @Nullable String strandKey) {
+        if (strandKey != null) {
+            Strand.dispatch(strandKey, runnable, mode);
         } else {
-            getSharedInstance()
-                    .getExecutorServiceInstance()
-                    .execute(runnable);
+            dispatchToLane(runnable, mode);
         }
     }
 
-    private static void executeOnMain(@NonNull Runnable runnable, long delayInMilliseconds) {
-        if (delayInMilliseconds > 0) {
+    public static int getActiveStrandCount() {
+        return Strand.getActiveCount();
+    }
+
+    static void dispatchToLane(@NonNull Runnable runnable, @NonNull TaskMode mode) {
+        if (mode == TaskMode.MAIN) {
             getSharedInstance()
-                    .getHandlerInstance()
-                    .postDelayed(runnable, delayInMilliseconds);
+                    .getMainThreadDispatcher()
+                    .enqueue(runnable);
         } else {
             getSharedInstance()
-                    .getHandlerInstance()
-                    .post(runnable);
+                    .getTaskScheduler()
+                    .execute(runnable, mode);
         }
     }
 
     static class TaskExecutor implements LifecycleObserver {
 
-        private final ExecutorService executorServiceAtomicReference;
+        private final AtomicReference<TaskScheduler> taskSchedulerAtomicReference;
         private final Handler handlerAtomicReference;
-        private final ScheduledExecutorService scheduledExecutorServiceAtomicReference;
-        private final int threadPoolSize;
+        private final MainThreadDispatcher mainThreadDispatcher;
+        private final TimingWheel timingWheel;
 
         TaskExecutor() {
             ProcessLifecycleOwner.get()
                     .getLifecycle()
                     .addObserver(this);
 
-            this.threadPoolSize = this.calculateThreadPoolLimits();
-            this.executorServiceAtomicReference = this.initExecutorService();
+            this.taskSchedulerAtomicReference = new AtomicReference<>(this.initTaskScheduler());
             this.handlerAtomicReference = this.initHandler();
-            this.scheduledExecutorServiceAtomicReference = this.initScheduledExecutorService();
+            this.mainThreadDispatcher = new MainThreadDispatcher(this.handlerAtomicReference);
+            this.timingWheel = new TimingWheel();
         }
 
         @NonNull
@@ -127,42 +282,41 @@ final class TaskManager {
         }
 
         @NonNull
-        private ScheduledExecutorService getScheduledExecutorServiceInstance() {
-            return scheduledExecutorServiceAtomicReference;
+        private MainThreadDispatcher getMainThreadDispatcher() {
+            return mainThreadDispatcher;
         }
 
         @NonNull
-        private ExecutorService getExecutorServiceInstance() {
-            return executorServiceAtomicReference;
+        private TimingWheel getTimingWheel() {
+            return timingWheel;
         }
 
         @NonNull
-        private Handler initHandler() {
-            return new Handler(Looper.getMainLooper());
+        private TaskScheduler getTaskScheduler() {
+            return taskSchedulerAtomicReference.get();
         }
 
-        @NonNull
-        private ScheduledExecutorService initScheduledExecutorService() {
-            return Executors
-                    .newScheduledThreadPool(INITIAL_THREAD_POOL_SIZE);
+        private void setTaskScheduler(@NonNull TaskScheduler scheduler) {
+            TaskScheduler previous = taskSchedulerAtomicReference.getAndSet(scheduler);
+            if (previous != null && previous != scheduler) {
+                previous.shutdown();
+            }
         }
 
         @NonNull
-        private ExecutorService initExecutorService() {
-            return Executors
-                    .newFixedThreadPool(this.threadPoolSize);
+        private Handler initHandler() {
+            return new Handler(Looper.getMainLooper());
         }
 
-        private int calculateThreadPoolLimits() {
-            return (Cpu.getNumberOfProcessorCores() * THREAD_POOL_SIZE_MULTIPLIER > MAX_THREAD_POOL_SIZE)
-                    ? MAX_THREAD_POOL_SIZE
-                    : Cpu.getNumberOfProcessorCores() * THREAD_POOL_SIZE_MULTIPLIER;
+        @NonNull
+        private TaskScheduler initTaskScheduler() {
+            return new LaneTaskScheduler();
         }
 
         @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
         void resetTaskManager() {
-            getExecutorServiceInstance().shutdown();
-            getScheduledExecutorServiceInstance().shutdown();
+            getTaskScheduler().shutdown();
+            getTimingWheel().stop();
             sharedAtomicInstance.set(null);
         }
 
@@ -0,0 +1,98 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class TaskMetrics {
+
+    private static final int MODE_COUNT = TaskMode.values().length;
+
+    @NonNull
+    private final LatencyHistogram[] queueWait = new LatencyHistogram[MODE_COUNT];
+
+    @NonNull
+    private final LatencyHistogram[] runTime = new LatencyHistogram[MODE_COUNT];
+
+    @NonNull
+    private final AtomicLongArray failedCounts = new AtomicLongArray(MODE_COUNT);
+
+    @NonNull
+    private final AtomicLongArray droppedCounts = new AtomicLongArray(MODE_COUNT);
+
+    @NonNull
+    private final AtomicLongArray rejectedCounts = new AtomicLongArray(MODE_COUNT);
+
+    private volatile boolean enabled = true;
+    private volatile long windowStartNanos = System.nanoTime();
+
+    TaskMetrics() {
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            queueWait[mode] = new LatencyHistogram();
+            runTime[mode] = new LatencyHistogram();
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    void recordExecution(@NonNull TaskMode mode, long queueWaitNanos, long runTimeNanos, boolean failed) {
+        int lane = mode.ordinal();
+        queueWait[lane].recordNanos(queueWaitNanos);
+        runTime[lane].recordNanos(runTimeNanos);
+        if (failed) {
+            failedCounts.incrementAndGet(lane);
+        }
+    }
+
+    void recordDropped(@NonNull TaskMode mode, long queueWaitNanos) {
+        int lane = mode.ordinal();
+        queueWait[lane].recordNanos(queueWaitNanos);
+        droppedCounts.incrementAndGet(lane);
+    }
+
+    void recordRejected(@NonNull TaskMode mode) {
+        rejectedCounts.incrementAndGet(mode.ordinal());
+    }
+
+    @NonNull
+    TaskMetricsSnapshot snapshot(@NonNull TaskSchedulerStatistics schedulerStatistics) {
+        HistogramSnapshot[] queueWaitSnapshots = new HistogramSnapshot[MODE_COUNT];
+        HistogramSnapshot[] runTimeSnapshots = new HistogramSnapshot[MODE_COUNT];
+        long[] failed = new long[MODE_COUNT];
+        long[] dropped = new long[MODE_COUNT];
+        long[] rejected = new long[MODE_COUNT];
+
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            queueWaitSnapshots[mode] = queueWait[mode].snapshot();
+            runTimeSnapshots[mode] = runTime[mode].snapshot();
+            failed[mode] = failedCounts.get(mode);
+            dropped[mode] = droppedCounts.get(mode);
+            rejected[mode] = rejectedCounts.get(mode);
+        }
+
+        return new TaskMetricsSnapshot(queueWaitSnapshots,
+                runTimeSnapshots,
+                failed,
+                dropped,
+                rejected,
+                System.nanoTime() - windowStartNanos,
+                schedulerStatistics);
+    }
+
+    void reset() {
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            queueWait[mode].reset();
+            runTime[mode].reset();
+            failedCounts.set(mode, 0L);
+            droppedCounts.set(mode, 0L);
+            rejectedCounts.set(mode, 0L);
+        }
+        windowStartNanos = System.nanoTime();
+    }
+}
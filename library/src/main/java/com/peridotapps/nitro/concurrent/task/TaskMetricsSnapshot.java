@@ -0,0 +1,118 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+public final class TaskMetricsSnapshot {
+
+    @NonNull
+    private final HistogramSnapshot[] queueWait;
+
+    @NonNull
+    private final HistogramSnapshot[] runTime;
+
+    @NonNull
+    private final long[] failedCounts;
+
+    @NonNull
+    private final long[] droppedCounts;
+
+    @NonNull
+    private final long[] rejectedCounts;
+
+    @NonNull
+    private final TaskSchedulerStatistics schedulerStatistics;
+
+    private final long windowNanos;
+
+    TaskMetricsSnapshot(@NonNull HistogramSnapshot[] queueWait,
+                        @NonNull HistogramSnapshot[] runTime,
+                        @NonNull long[] failedCounts,
+                        @NonNull long[] droppedCounts,
+                        @NonNull long[] rejectedCounts,
+                        long windowNanos,
+                        @NonNull TaskSchedulerStatistics schedulerStatistics) {
+        this.queueWait = queueWait;
+        this.runTime = runTime;
+        this.failedCounts = failedCounts;
+        this.droppedCounts = droppedCounts;
+        this.rejectedCounts = rejectedCounts;
+        this.windowNanos = windowNanos;
+        this.schedulerStatistics = schedulerStatistics;
+    }
+
+    @NonNull
+    public HistogramSnapshot getQueueWait(@NonNull TaskMode mode) {
+        return queueWait[mode.ordinal()];
+    }
+
+    @NonNull
+    public HistogramSnapshot getRunTime(@NonNull TaskMode mode) {
+        return runTime[mode.ordinal()];
+    }
+
+    public long getExecutedCount(@NonNull TaskMode mode) {
+        return runTime[mode.ordinal()].getCount();
+    }
+
+    public long getFailedCount(@NonNull TaskMode mode) {
+        return failedCounts[mode.ordinal()];
+    }
+
+    public long getDroppedCount(@NonNull TaskMode mode) {
+        return droppedCounts[mode.ordinal()];
+    }
+
+    public long getRejectedCount(@NonNull TaskMode mode) {
+        return rejectedCounts[mode.ordinal()];
+    }
+
+    public long getWindowInMilliseconds() {
+        return TimeUnit.NANOSECONDS.toMillis(windowNanos);
+    }
+
+    public long getBusyTimeInMilliseconds(@NonNull TaskMode mode) {
+        return TimeUnit.MICROSECONDS.toMillis(runTime[mode.ordinal()].getTotalInMicroseconds());
+    }
+
+    // Fraction of the given thread capacity that tasks of this mode kept busy over the window,
+    // e.g. getUtilisation(TaskMode.COMPUTE, statistics.getComputeParallelism()).
+    public double getUtilisation(@NonNull TaskMode mode, int threadCount) {
+        long capacityMicros = TimeUnit.NANOSECONDS.toMicros(windowNanos) * Math.max(1, threadCount);
+        return (capacityMicros <= 0L) ? 0D : (double) runTime[mode.ordinal()].getTotalInMicroseconds() / capacityMicros;
+    }
+
+    @NonNull
+    public TaskSchedulerStatistics getSchedulerStatistics() {
+        return schedulerStatistics;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("TaskMetricsSnapshot{windowMs=").append(getWindowInMilliseconds());
+
+        for (TaskMode mode : TaskMode.values()) {
+            int lane = mode.ordinal();
+            builder.append(", ")
+                    .append(mode.name())
+                    .append("={queueWait=")
+                    .append(queueWait[lane])
+                    .append(", runTime=")
+                    .append(runTime[lane])
+                    .append(", failed=")
+                    .append(failedCounts[lane])
+                    .append(", dropped=")
+                    .append(droppedCounts[lane])
+                    .append(", rejected=")
+                    .append(rejectedCounts[lane])
+                    .append('}');
+        }
+
+        return builder.append(", scheduler=")
+                .append(schedulerStatistics)
+                .append('}')
+                .toString();
+    }
+}
@@ -2,5 +2,8 @@ package com.peridotapps.nitro.concurrent.task;
 
 public enum TaskMode {
     MAIN,
-    NEW
+    NEW,
+    COMPUTE,
+    BLOCKING,
+    IO
 }
@@ -0,0 +1,9 @@
+package com.peridotapps.nitro.concurrent.task;
+
+public enum TaskPriority {
+    IMMEDIATE,
+    HIGH,
+    NORMAL,
+    LOW,
+    BACKGROUND
+}
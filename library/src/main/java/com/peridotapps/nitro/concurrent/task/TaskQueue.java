@@ -0,0 +1,397 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class TaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private static final int INITIAL_DEADLINE_QUEUE_CAPACITY = 8;
+
+    @NonNull
+    private static final Comparator<QueuedTask<?>> DEADLINE_COMPARATOR = (first, second) -> {
+        long difference = first.getDeadlineNanos() - second.getDeadlineNanos();
+        if (difference == 0L) {
+            difference = first.getSequence() - second.getSequence();
+        }
+        return (difference < 0L) ? -1 : ((difference > 0L) ? 1 : 0);
+    };
+
+    @NonNull
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @NonNull
+    private final Condition notEmpty = lock.newCondition();
+
+    @NonNull
+    private final Condition notFull = lock.newCondition();
+
+    @NonNull
+    private final ArrayDeque<Runnable>[] plainBands;
+
+    @NonNull
+    private final PriorityQueue<QueuedTask<?>>[] deadlineBands;
+
+    private final int capacity;
+
+    private int count = 0;
+
+    TaskQueue() {
+        this(Integer.MAX_VALUE);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TaskQueue(int capacity) {
+        this.capacity = Math.max(1, capacity);
+
+        int bandCount = TaskPriority.values().length;
+        this.plainBands = new ArrayDeque[bandCount];
+        this.deadlineBands = new PriorityQueue[bandCount];
+
+        for (int band = 0; band < bandCount; band++) {
+            plainBands[band] = new ArrayDeque<>();
+            deadlineBands[band] = new PriorityQueue<>(INITIAL_DEADLINE_QUEUE_CAPACITY, DEADLINE_COMPARATOR);
+        }
+    }
+
+    @Override
+    public boolean offer(@NonNull Runnable runnable) {
+        lock.lock();
+        try {
+            if (count >= capacity) {
+                return false;
+            }
+            enqueue(runnable);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public void put(@NonNull Runnable runnable) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                notFull.await();
+            }
+            enqueue(runnable);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(@NonNull Runnable runnable, long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(runnable);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Runnable take() throws InterruptedException {
+        TaskThreadFactory.TaskThread.setAwaitingWork(true);
+        try {
+            lock.lockInterruptibly();
+            try {
+                Runnable runnable;
+                while ((runnable = dequeue()) == null) {
+                    notEmpty.await();
+                }
+                return runnable;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            TaskThreadFactory.TaskThread.setAwaitingWork(false);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Runnable poll(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        TaskThreadFactory.TaskThread.setAwaitingWork(true);
+        try {
+            lock.lockInterruptibly();
+            try {
+                Runnable runnable;
+                while ((runnable = dequeue()) == null) {
+                    if (nanos <= 0L) {
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                return runnable;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            TaskThreadFactory.TaskThread.setAwaitingWork(false);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            for (int band = 0; band < plainBands.length; band++) {
+                if (!deadlineBands[band].isEmpty()) {
+                    return deadlineBands[band].peek();
+                }
+                if (!plainBands[band].isEmpty()) {
+                    return plainBands[band].peek();
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    // Makes room under DROP_OLDEST by shedding the longest-waiting task of the lowest priority
+    // band that has any, so background work is sacrificed before anything the user is waiting on.
+    @Nullable
+    Runnable evictOldest() {
+        lock.lock();
+        try {
+            for (int band = plainBands.length - 1; band >= 0; band--) {
+                Runnable runnable = plainBands[band].poll();
+                if (runnable == null) {
+                    runnable = deadlineBands[band].poll();
+                }
+                if (runnable != null) {
+                    count--;
+                    notFull.signal();
+                    return runnable;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(@Nullable Object o) {
+        if (!(o instanceof Runnable)) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            for (int band = 0; band < plainBands.length; band++) {
+                if (deadlineBands[band].remove(o) || plainBands[band].remove(o)) {
+                    count--;
+                    notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(@NonNull Collection<? super Runnable> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(@NonNull Collection<? super Runnable> collection, int maxElements) {
+        if (collection == this) {
+            throw new IllegalArgumentException("A task queue cannot be drained into itself");
+        }
+
+        lock.lock();
+        try {
+            int drained = 0;
+            Runnable runnable;
+            while (drained < maxElements && (runnable = dequeue()) != null) {
+                collection.add(runnable);
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Iterator<Runnable> iterator() {
+        return new SnapshotIterator(snapshot());
+    }
+
+    @NonNull
+    private Object[] snapshot() {
+        lock.lock();
+        try {
+            Object[] items = new Object[count];
+            int index = 0;
+            for (int band = 0; band < plainBands.length; band++) {
+                for (QueuedTask<?> queuedTask : deadlineBands[band]) {
+                    items[index++] = queuedTask;
+                }
+                for (Runnable runnable : plainBands[band]) {
+                    items[index++] = runnable;
+                }
+            }
+            return items;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(@NonNull Runnable runnable) {
+        if (runnable instanceof QueuedTask) {
+            QueuedTask<?> queuedTask = (QueuedTask<?>) runnable;
+            int band = queuedTask.getPriority()
+                    .ordinal();
+
+            if (queuedTask.hasDeadline()) {
+                deadlineBands[band].offer(queuedTask);
+            } else {
+                plainBands[band].offer(queuedTask);
+            }
+        } else {
+            plainBands[TaskPriority.NORMAL.ordinal()].offer(runnable);
+        }
+        count++;
+    }
+
+    @Nullable
+    private Runnable dequeue() {
+        if (count == 0) {
+            return null;
+        }
+
+        Runnable runnable = pollLate(System.nanoTime());
+
+        if (runnable == null) {
+            for (int band = 0; band < plainBands.length && runnable == null; band++) {
+                runnable = (!deadlineBands[band].isEmpty()) ? deadlineBands[band].poll() : plainBands[band].poll();
+            }
+        }
+
+        if (runnable != null) {
+            count--;
+            notFull.signal();
+        }
+
+        return runnable;
+    }
+
+    // Late tasks are surfaced ahead of every band: PROMOTE tasks run next and DROP tasks are
+    // discarded by QueuedTask.run() without occupying a worker for longer than the check.
+    @Nullable
+    private QueuedTask<?> pollLate(long nowNanos) {
+        for (PriorityQueue<QueuedTask<?>> deadlineBand : deadlineBands) {
+            QueuedTask<?> head = deadlineBand.peek();
+            if (head != null && head.isLate(nowNanos)) {
+                return deadlineBand.poll();
+            }
+        }
+        return null;
+    }
+
+    private final class SnapshotIterator implements Iterator<Runnable> {
+
+        @NonNull
+        private final Object[] items;
+
+        private int cursor = 0;
+        private int last = -1;
+
+        SnapshotIterator(@NonNull Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < items.length;
+        }
+
+        @NonNull
+        @Override
+        public Runnable next() {
+            if (cursor >= items.length) {
+                throw new NoSuchElementException();
+            }
+            last = cursor++;
+            return (Runnable) items[last];
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            TaskQueue.this.remove(items[last]);
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+final class TaskRejectionHandler implements RejectedExecutionHandler {
+
+    @NonNull
+    private final RejectionPolicy policy;
+
+    private final long blockTimeoutInMilliseconds;
+
+    TaskRejectionHandler(@NonNull RejectionPolicy policy, long blockTimeoutInMilliseconds) {
+        this.policy = policy;
+        this.blockTimeoutInMilliseconds = Math.max(0L, blockTimeoutInMilliseconds);
+    }
+
+    @Override
+    public void rejectedExecution(@NonNull Runnable runnable, @NonNull ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw reject(runnable, "the scheduler has been shut down");
+        }
+
+        switch (policy) {
+            case CALLER_RUNS:
+                runnable.run();
+                break;
+            case DROP_OLDEST:
+                dropOldest(runnable, executor.getQueue());
+                break;
+            case BLOCK:
+                block(runnable, executor.getQueue());
+                break;
+            case FAIL_FAST:
+            default:
+                throw reject(runnable, "the task queue is full");
+        }
+    }
+
+    private void dropOldest(@NonNull Runnable runnable, @NonNull BlockingQueue<Runnable> queue) {
+        for (; ; ) {
+            Runnable evicted = (queue instanceof TaskQueue) ? ((TaskQueue) queue).evictOldest() : queue.poll();
+
+            if (evicted == null) {
+                throw reject(runnable, "the task queue is full and nothing could be evicted");
+            }
+
+            reject(evicted, "it was evicted by a newer task");
+
+            boolean queued = (queue instanceof LaneTaskScheduler.IoWorkQueue)
+                    ? ((LaneTaskScheduler.IoWorkQueue) queue).enqueue(runnable)
+                    : queue.offer(runnable);
+            if (queued) {
+                return;
+            }
+        }
+    }
+
+    private void block(@NonNull Runnable runnable, @NonNull BlockingQueue<Runnable> queue) {
+        try {
+            if (queue.offer(runnable, blockTimeoutInMilliseconds, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            throw reject(runnable, "the submitting thread was interrupted while waiting for queue space");
+        }
+
+        throw reject(runnable, "no queue space became available within " + blockTimeoutInMilliseconds + "ms");
+    }
+
+    // Rejected QueuedTasks, and everything queued on a rejected strand, are failed through their
+    // results and listeners so nobody waits on work that will never run; the returned exception
+    // is thrown back at the submitter where it applies.
+    @NonNull
+    private static RejectedExecutionException reject(@NonNull Runnable runnable, @NonNull String reason) {
+        RejectedExecutionException exception;
+
+        if (runnable instanceof QueuedTask) {
+            QueuedTask<?> queuedTask = (QueuedTask<?>) runnable;
+            exception = new RejectedExecutionException("Task " + queuedTask.getTask()
+                    .getTaskId() + " was rejected because " + reason);
+            queuedTask.reject(exception);
+        } else if (runnable instanceof Strand) {
+            exception = new RejectedExecutionException("Strand was rejected because " + reason);
+            ((Strand) runnable).reject(exception);
+        } else {
+            exception = new RejectedExecutionException("Task was rejected because " + reason);
+        }
+
+        return exception;
+    }
+}
@@ -0,0 +1,492 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.peridotapps.nitro.function.BiConsumer;
+import com.peridotapps.nitro.function.Consumer;
+import com.peridotapps.nitro.function.Function;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TaskResult<T> implements Future<T> {
+
+    @NonNull
+    private static final Object NULL_VALUE = new Object();
+
+    @NonNull
+    private static final Continuation FIRED = new Continuation(null) {
+        @Override
+        void onSourceDone(@NonNull TaskResult<?> source) {
+        }
+    };
+
+    @NonNull
+    private final AtomicReference<Object> outcome = new AtomicReference<>(null);
+
+    @NonNull
+    private final AtomicReference<Continuation> continuations = new AtomicReference<>(null);
+
+    @Nullable
+    private volatile Runnable cancellationHook = null;
+
+    public TaskResult() {
+    }
+
+    @NonNull
+    public static <T> TaskResult<T> completed(@Nullable T value) {
+        TaskResult<T> result = new TaskResult<>();
+        result.complete(value);
+        return result;
+    }
+
+    @NonNull
+    public static <T> TaskResult<T> failed(@NonNull Throwable t) {
+        TaskResult<T> result = new TaskResult<>();
+        result.completeExceptionally(t);
+        return result;
+    }
+
+    @NonNull
+    public static TaskResult<Void> allOf(@NonNull TaskResult<?>... results) {
+        return allOf(Arrays.asList(results));
+    }
+
+    @NonNull
+    public static TaskResult<Void> allOf(@NonNull List<? extends TaskResult<?>> results) {
+        TaskResult<Void> combined = new TaskResult<>();
+
+        if (results.isEmpty()) {
+            combined.complete(null);
+            return combined;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(results.size());
+        for (TaskResult<?> result : results) {
+            result.addContinuation(new Continuation(null) {
+                @Override
+                void onSourceDone(@NonNull TaskResult<?> source) {
+                    Throwable failure = source.getFailure();
+                    if (failure != null) {
+                        combined.completeExceptionally(failure);
+                    } else if (remaining.decrementAndGet() == 0) {
+                        combined.complete(null);
+                    }
+                }
+            });
+        }
+
+        return combined;
+    }
+
+    @SafeVarargs
+    @NonNull
+    public static <T> TaskResult<T> anyOf(@NonNull TaskResult<? extends T>... results) {
+        List<TaskResult<? extends T>> list = new ArrayList<>(results.length);
+        for (TaskResult<? extends T> result : results) {
+            list.add(result);
+        }
+        return anyOf(list);
+    }
+
+    @NonNull
+    public static <T> TaskResult<T> anyOf(@NonNull List<? extends TaskResult<? extends T>> results) {
+        TaskResult<T> first = new TaskResult<>();
+
+        for (TaskResult<? extends T> result : results) {
+            result.addContinuation(new Continuation(null) {
+                @Override
+                void onSourceDone(@NonNull TaskResult<?> source) {
+                    first.completeFrom(result);
+                }
+            });
+        }
+
+        return first;
+    }
+
+    public boolean complete(@Nullable T value) {
+        return finish((value != null) ? value : NULL_VALUE);
+    }
+
+    public boolean completeExceptionally(@NonNull Throwable t) {
+        return finish(new Failure(t));
+    }
+
+    @NonNull
+    public <U> TaskResult<U> thenApply(@NonNull Function<? super T, ? extends U> function) {
+        return addApplyStage(function, null);
+    }
+
+    @NonNull
+    public <U> TaskResult<U> thenApply(@NonNull Function<? super T, ? extends U> function, @NonNull TaskMode mode) {
+        return addApplyStage(function, mode);
+    }
+
+    @NonNull
+    public TaskResult<Void> thenAccept(@NonNull Consumer<? super T> consumer) {
+        return addAcceptStage(consumer, null);
+    }
+
+    @NonNull
+    public TaskResult<Void> thenAccept(@NonNull Consumer<? super T> consumer, @NonNull TaskMode mode) {
+        return addAcceptStage(consumer, mode);
+    }
+
+    @NonNull
+    public <U> TaskResult<U> thenCompose(@NonNull Function<? super T, ? extends TaskResult<U>> function) {
+        return addComposeStage(function, null);
+    }
+
+    @NonNull
+    public <U> TaskResult<U> thenCompose(@NonNull Function<? super T, ? extends TaskResult<U>> function, @NonNull TaskMode mode) {
+        return addComposeStage(function, mode);
+    }
+
+    @NonNull
+    public TaskResult<T> exceptionally(@NonNull Function<Throwable, ? extends T> function) {
+        TaskResult<T> next = newStage();
+
+        addContinuation(new Continuation(null) {
+            @Override
+            void onSourceDone(@NonNull TaskResult<?> source) {
+                Throwable failure = getFailure();
+                if (failure == null) {
+                    next.completeFrom(TaskResult.this);
+                } else {
+                    try {
+                        next.complete(function.apply(failure));
+                    } catch (Exception e) {
+                        next.completeExceptionally(e);
+                    }
+                }
+            }
+        });
+
+        return next;
+    }
+
+    @NonNull
+    public TaskResult<T> whenComplete(@NonNull BiConsumer<? super T, ? super Throwable> action) {
+        TaskResult<T> next = newStage();
+
+        addContinuation(new Continuation(null) {
+            @Override
+            void onSourceDone(@NonNull TaskResult<?> source) {
+                Throwable failure = getFailure();
+                try {
+                    action.accept((failure == null) ? getValue() : null, failure);
+                } catch (Exception e) {
+                    if (failure == null) {
+                        next.completeExceptionally(e);
+                        return;
+                    }
+                }
+                next.completeFrom(TaskResult.this);
+            }
+        });
+
+        return next;
+    }
+
+    // The timeout completes on the compute lane rather than on the timing wheel: continuations
+    // without a mode run inline on whichever thread completes the result, and on the wheel they
+    // would hold up every other timer.
+    @NonNull
+    public TaskResult<T> orTimeout(long timeoutInMilliseconds) {
+        if (!isDone()) {
+            Timeout timeout = TaskManager.schedule(() -> completeExceptionally(new TimeoutException("Result was not available within " + timeoutInMilliseconds + "ms")), timeoutInMilliseconds, TaskMode.COMPUTE);
+            addContinuation(new Continuation(null) {
+                @Override
+                void onSourceDone(@NonNull TaskResult<?> source) {
+                    timeout.cancel();
+                }
+            });
+        }
+        return this;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = finish(new Failure(new CancellationException()));
+
+        if (cancelled) {
+            Runnable hook = cancellationHook;
+            if (hook != null) {
+                hook.run();
+            }
+        }
+
+        return cancelled || isCancelled();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return getFailure() instanceof CancellationException;
+    }
+
+    @Override
+    public boolean isDone() {
+        return outcome.get() != null;
+    }
+
+    public boolean isCompletedExceptionally() {
+        return getFailure() != null;
+    }
+
+    @Nullable
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        if (!isDone()) {
+            synchronized (this) {
+                while (!isDone()) {
+                    wait();
+                }
+            }
+        }
+        return report();
+    }
+
+    @Nullable
+    @Override
+    public T get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!isDone()) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (this) {
+                long remaining;
+                while (!isDone()) {
+                    remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        throw new TimeoutException();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+        }
+        return report();
+    }
+
+    @Nullable
+    public T getNow(@Nullable T valueIfAbsent) throws ExecutionException {
+        return isDone() ? report() : valueIfAbsent;
+    }
+
+    void setCancellationHook(@Nullable Runnable hook) {
+        this.cancellationHook = hook;
+    }
+
+    @Nullable
+    final Throwable getFailure() {
+        Object current = outcome.get();
+        return (current instanceof Failure) ? ((Failure) current).cause : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private T getValue() {
+        Object current = outcome.get();
+        return (current == NULL_VALUE || current instanceof Failure) ? null : (T) current;
+    }
+
+    @Nullable
+    private T report() throws ExecutionException {
+        Throwable failure = getFailure();
+
+        if (failure instanceof CancellationException) {
+            throw (CancellationException) failure;
+        } else if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+
+        return getValue();
+    }
+
+    private void completeFrom(@NonNull TaskResult<? extends T> source) {
+        Throwable failure = source.getFailure();
+        if (failure != null) {
+            completeExceptionally(failure);
+        } else {
+            complete(source.getValue());
+        }
+    }
+
+    private boolean finish(@NonNull Object result) {
+        if (!outcome.compareAndSet(null, result)) {
+            return false;
+        }
+
+        synchronized (this) {
+            notifyAll();
+        }
+
+        fireContinuations();
+        return true;
+    }
+
+    // Cancelling a derived stage cancels the stage it was derived from, so cancellation reaches
+    // the task at the root of the chain. A compose stage hands the hook on to its inner result
+    // once that exists.
+    @NonNull
+    private <U> TaskResult<U> newStage() {
+        TaskResult<U> next = new TaskResult<>();
+        next.setCancellationHook(() -> cancel(true));
+        return next;
+    }
+
+    @NonNull
+    private <U> TaskResult<U> addApplyStage(@NonNull Function<? super T, ? extends U> function, @Nullable TaskMode mode) {
+        TaskResult<U> next = newStage();
+
+        addContinuation(new Continuation(mode) {
+            @Override
+            void onSourceDone(@NonNull TaskResult<?> source) {
+                Throwable failure = getFailure();
+                if (failure != null) {
+                    next.completeExceptionally(failure);
+                } else if (!next.isDone()) {
+                    try {
+                        next.complete(function.apply(getValue()));
+                    } catch (Exception e) {
+                        next.completeExceptionally(e);
+                    }
+                }
+            }
+        });
+
+        return next;
+    }
+
+    @NonNull
+    private TaskResult<Void> addAcceptStage(@NonNull Consumer<? super T> consumer, @Nullable TaskMode mode) {
+        return addApplyStage(value -> {
+            consumer.accept(value);
+            return null;
+        }, mode);
+    }
+
+    @NonNull
+    private <U> TaskResult<U> addComposeStage(@NonNull Function<? super T, ? extends TaskResult<U>> function, @Nullable TaskMode mode) {
+        TaskResult<U> next = newStage();
+
+        addContinuation(new Continuation(mode) {
+            @Override
+            void onSourceDone(@NonNull TaskResult<?> source) {
+                Throwable failure = getFailure();
+                if (failure != null) {
+                    next.completeExceptionally(failure);
+                    return;
+                }
+
+                try {
+                    TaskResult<U> inner = function.apply(getValue());
+                    if (inner == null) {
+                        next.complete(null);
+                    } else {
+                        next.setCancellationHook(() -> inner.cancel(true));
+                        inner.addContinuation(new Continuation(null) {
+                            @Override
+                            void onSourceDone(@NonNull TaskResult<?> innerSource) {
+                                next.completeFrom(inner);
+                            }
+                        });
+                    }
+                } catch (Exception e) {
+                    next.completeExceptionally(e);
+                }
+            }
+        });
+
+        return next;
+    }
+
+    private void addContinuation(@NonNull Continuation continuation) {
+        for (; ; ) {
+            Continuation head = continuations.get();
+
+            if (head == FIRED) {
+                continuation.fire(this);
+                return;
+            }
+
+            continuation.nextContinuation = head;
+            if (continuations.compareAndSet(head, continuation)) {
+                return;
+            }
+        }
+    }
+
+    private void fireContinuations() {
+        Continuation head = continuations.getAndSet(FIRED);
+
+        // Continuations are pushed onto a stack; reverse it so stages fire in registration order.
+        Continuation ordered = null;
+        while (head != null) {
+            Continuation following = head.nextContinuation;
+            head.nextContinuation = ordered;
+            ordered = head;
+            head = following;
+        }
+
+        while (ordered != null) {
+            Continuation following = ordered.nextContinuation;
+            ordered.nextContinuation = null;
+            ordered.fire(this);
+            ordered = following;
+        }
+    }
+
+    private abstract static class Continuation implements Runnable {
+
+        @Nullable
+        private final TaskMode mode;
+
+        @Nullable
+        Continuation nextContinuation = null;
+
+        @Nullable
+        private TaskResult<?> source = null;
+
+        Continuation(@Nullable TaskMode mode) {
+            this.mode = mode;
+        }
+
+        abstract void onSourceDone(@NonNull TaskResult<?> source);
+
+        final void fire(@NonNull TaskResult<?> completedSource) {
+            if (mode == null) {
+                onSourceDone(completedSource);
+            } else {
+                this.source = completedSource;
+                TaskManager.dispatch(this, mode);
+            }
+        }
+
+        @Override
+        public final void run() {
+            TaskResult<?> completedSource = source;
+            source = null;
+            if (completedSource != null) {
+                onSourceDone(completedSource);
+            }
+        }
+    }
+
+    private static final class Failure {
+
+        @NonNull
+        private final Throwable cause;
+
+        Failure(@NonNull Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
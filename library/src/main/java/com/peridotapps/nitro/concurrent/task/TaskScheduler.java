@@ -0,0 +1,18 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+public interface TaskScheduler {
+
+    void execute(@NonNull Runnable runnable, @NonNull TaskMode mode);
+
+    @NonNull
+    TaskSchedulerStatistics getStatistics();
+
+    void shutdown();
+
+    default boolean isSaturated() {
+        return false;
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+
+public final class TaskSchedulerStatistics {
+
+    private final int computeParallelism;
+    private final int computeActiveThreads;
+    private final long computeQueueDepth;
+    private final long computeStealCount;
+    private final int blockingPoolSize;
+    private final int blockingActiveThreads;
+    private final long blockingQueueDepth;
+    private final int blockingQueueCapacity;
+    private final long blockingCompletedTaskCount;
+    private final int ioThreadLimit;
+    private final int ioActiveThreads;
+    private final long ioQueueDepth;
+    private final int ioQueueCapacity;
+
+    TaskSchedulerStatistics(int computeParallelism,
+                            int computeActiveThreads,
+                            long computeQueueDepth,
+                            long computeStealCount,
+                            int blockingPoolSize,
+                            int blockingActiveThreads,
+                            long blockingQueueDepth,
+                            int blockingQueueCapacity,
+                            long blockingCompletedTaskCount,
+                            int ioThreadLimit,
+                            int ioActiveThreads,
+                            long ioQueueDepth,
+                            int ioQueueCapacity) {
+        this.computeParallelism = computeParallelism;
+        this.computeActiveThreads = computeActiveThreads;
+        this.computeQueueDepth = computeQueueDepth;
+        this.computeStealCount = computeStealCount;
+        this.blockingPoolSize = blockingPoolSize;
+        this.blockingActiveThreads = blockingActiveThreads;
+        this.blockingQueueDepth = blockingQueueDepth;
+        this.blockingQueueCapacity = blockingQueueCapacity;
+        this.blockingCompletedTaskCount = blockingCompletedTaskCount;
+        this.ioThreadLimit = ioThreadLimit;
+        this.ioActiveThreads = ioActiveThreads;
+        this.ioQueueDepth = ioQueueDepth;
+        this.ioQueueCapacity = ioQueueCapacity;
+    }
+
+    public int getComputeParallelism() {
+        return computeParallelism;
+    }
+
+    public int getComputeActiveThreads() {
+        return computeActiveThreads;
+    }
+
+    public long getComputeQueueDepth() {
+        return computeQueueDepth;
+    }
+
+    public long getComputeStealCount() {
+        return computeStealCount;
+    }
+
+    public int getBlockingPoolSize() {
+        return blockingPoolSize;
+    }
+
+    public int getBlockingActiveThreads() {
+        return blockingActiveThreads;
+    }
+
+    public long getBlockingQueueDepth() {
+        return blockingQueueDepth;
+    }
+
+    public int getBlockingQueueCapacity() {
+        return blockingQueueCapacity;
+    }
+
+    public long getBlockingCompletedTaskCount() {
+        return blockingCompletedTaskCount;
+    }
+
+    public int getIoThreadLimit() {
+        return ioThreadLimit;
+    }
+
+    public int getIoActiveThreads() {
+        return ioActiveThreads;
+    }
+
+    public long getIoQueueDepth() {
+        return ioQueueDepth;
+    }
+
+    public int getIoQueueCapacity() {
+        return ioQueueCapacity;
+    }
+
+    public long getTotalQueueDepth() {
+        return computeQueueDepth + blockingQueueDepth + ioQueueDepth;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TaskSchedulerStatistics{" +
+                "computeParallelism=" + computeParallelism +
+                ", computeActiveThreads=" + computeActiveThreads +
+                ", computeQueueDepth=" + computeQueueDepth +
+                ", computeStealCount=" + computeStealCount +
+                ", blockingPoolSize=" + blockingPoolSize +
+                ", blockingActiveThreads=" + blockingActiveThreads +
+                ", blockingQueueDepth=" + blockingQueueDepth +
+                ", blockingQueueCapacity=" + blockingQueueCapacity +
+                ", blockingCompletedTaskCount=" + blockingCompletedTaskCount +
+                ", ioThreadLimit=" + ioThreadLimit +
+                ", ioActiveThreads=" + ioActiveThreads +
+                ", ioQueueDepth=" + ioQueueDepth +
+                ", ioQueueCapacity=" + ioQueueCapacity +
+                '}';
+    }
+}
@@ -0,0 +1,10 @@
+package com.peridotapps.nitro.concurrent.task;
+
+public enum TaskState {
+    CREATED,
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -0,0 +1,87 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class TaskThreadFactory implements ThreadFactory {
+
+    @NonNull
+    private final AtomicInteger threadCount = new AtomicInteger(0);
+
+    @NonNull
+    private final String namePrefix;
+
+    private final long stackSizeInBytes;
+
+    // Threads are only remembered for pools whose workers get sampled (see PoolSizeController),
+    // so pools that churn through threads do not pay for it.
+    @Nullable
+    private final ConcurrentLinkedQueue<TaskThread> liveThreads;
+
+    TaskThreadFactory(@NonNull String namePrefix) {
+        this(namePrefix, 0L);
+    }
+
+    TaskThreadFactory(@NonNull String namePrefix, long stackSizeInBytes) {
+        this(namePrefix, stackSizeInBytes, false);
+    }
+
+    TaskThreadFactory(@NonNull String namePrefix, long stackSizeInBytes, boolean trackThreads) {
+        this.namePrefix = namePrefix;
+        this.stackSizeInBytes = Math.max(0L, stackSizeInBytes);
+        this.liveThreads = trackThreads ? new ConcurrentLinkedQueue<TaskThread>() : null;
+    }
+
+    @NonNull
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+        TaskThread thread = new TaskThread(runnable, namePrefix + "-" + threadCount.incrementAndGet(), stackSizeInBytes);
+        thread.setDaemon(true);
+        if (liveThreads != null) {
+            liveThreads.offer(thread);
+        }
+        return thread;
+    }
+
+    // Workers that are in the middle of a task but parked, waiting or blocked on a monitor. A
+    // worker waiting on the queue for its next task is idle, not blocked, and is not counted.
+    int countBlockedThreads() {
+        if (liveThreads == null) {
+            return 0;
+        }
+
+        int blocked = 0;
+        for (Iterator<TaskThread> iterator = liveThreads.iterator(); iterator.hasNext(); ) {
+            TaskThread thread = iterator.next();
+            Thread.State state = thread.getState();
+
+            if (state == Thread.State.TERMINATED) {
+                iterator.remove();
+            } else if (!thread.awaitingWork && (state == Thread.State.BLOCKED || state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING)) {
+                blocked++;
+            }
+        }
+        return blocked;
+    }
+
+    static final class TaskThread extends Thread {
+
+        private volatile boolean awaitingWork = false;
+
+        TaskThread(@NonNull Runnable runnable, @NonNull String name, long stackSizeInBytes) {
+            super(null, runnable, name, stackSizeInBytes);
+        }
+
+        static void setAwaitingWork(boolean awaitingWork) {
+            Thread current = Thread.currentThread();
+            if (current instanceof TaskThread) {
+                ((TaskThread) current).awaitingWork = awaitingWork;
+            }
+        }
+    }
+}
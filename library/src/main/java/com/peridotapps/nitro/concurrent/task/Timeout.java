@@ -0,0 +1,11 @@
+package com.peridotapps.nitro.concurrent.task;
+
+public interface Timeout {
+
+    boolean cancel();
+
+    boolean isCancelled();
+
+    boolean isExpired();
+
+}
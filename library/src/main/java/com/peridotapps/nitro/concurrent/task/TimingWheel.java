@@ -0,0 +1,335 @@
+package com.peridotapps.nitro.concurrent.task;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.peridotapps.nitro.logging.Logger;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+final class TimingWheel {
+
+    static final long DEFAULT_TICK_DURATION_MILLISECONDS = 10L;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+
+    @NonNull
+    private final Bucket[] wheel;
+
+    @NonNull
+    private final ConcurrentLinkedQueue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    @NonNull
+    private final ConcurrentLinkedQueue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    @NonNull
+    private final AtomicInteger workerState = new AtomicInteger(WORKER_STATE_INIT);
+
+    @NonNull
+    private final AtomicLong activeTimeouts = new AtomicLong(0L);
+
+    @NonNull
+    private final Thread workerThread;
+
+    private final long tickDurationNanos;
+    private final int mask;
+    private final long startTime;
+
+    private volatile boolean workerIdle = false;
+
+    private long tick = 0L;
+
+    TimingWheel() {
+        this(DEFAULT_TICK_DURATION_MILLISECONDS, DEFAULT_WHEEL_SIZE);
+    }
+
+    TimingWheel(long tickDurationInMilliseconds, int wheelSize) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+
+        this.wheel = new Bucket[size];
+        for (int index = 0; index < size; index++) {
+            wheel[index] = new Bucket();
+        }
+
+        this.mask = size - 1;
+        this.tickDurationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickDurationInMilliseconds));
+        this.startTime = System.nanoTime();
+        this.workerThread = new TaskThreadFactory("nitro-timer").newThread(new Worker());
+    }
+
+    @NonNull
+    Timeout newTimeout(@NonNull Runnable runnable, @Nullable TaskMode mode, long delayInMilliseconds) {
+        start();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delayInMilliseconds)) - startTime;
+        WheelTimeout timeout = new WheelTimeout(this, runnable, mode, deadline);
+
+        activeTimeouts.incrementAndGet();
+        pendingTimeouts.offer(timeout);
+
+        if (workerIdle) {
+            LockSupport.unpark(workerThread);
+        }
+
+        return timeout;
+    }
+
+    long getActiveTimeoutCount() {
+        return activeTimeouts.get();
+    }
+
+    void stop() {
+        if (workerState.getAndSet(WORKER_STATE_SHUTDOWN) == WORKER_STATE_STARTED) {
+            workerThread.interrupt();
+        }
+    }
+
+    private void start() {
+        if (workerState.get() == WORKER_STATE_INIT && workerState.compareAndSet(WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+            workerThread.start();
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (workerState.get() == WORKER_STATE_STARTED) {
+                if (activeTimeouts.get() == 0L) {
+                    awaitTimeouts();
+                    continue;
+                }
+
+                long currentTime = waitForNextTick();
+                if (currentTime > 0L) {
+                    processCancelledTimeouts();
+                    transferTimeoutsToBuckets();
+                    wheel[(int) (tick & mask)].expireTimeouts();
+                    tick++;
+                }
+            }
+        }
+
+        // With nothing scheduled the ticker parks instead of waking every tick. The buckets are
+        // empty at this point, so the tick counter can be fast-forwarded to the current time.
+        private void awaitTimeouts() {
+            processCancelledTimeouts();
+            workerIdle = true;
+            if (activeTimeouts.get() == 0L && workerState.get() == WORKER_STATE_STARTED) {
+                LockSupport.park(this);
+            }
+            workerIdle = false;
+            processCancelledTimeouts();
+            tick = Math.max(tick, (System.nanoTime() - startTime) / tickDurationNanos);
+        }
+
+        private long waitForNextTick() {
+            long deadline = tickDurationNanos * (tick + 1L);
+
+            for (; ; ) {
+                long currentTime = System.nanoTime() - startTime;
+                long sleepTimeNanos = deadline - currentTime;
+
+                if (sleepTimeNanos <= 0L) {
+                    return currentTime;
+                }
+
+                try {
+                    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepTimeNanos + 999999L));
+                } catch (InterruptedException e) {
+                    if (workerState.get() == WORKER_STATE_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            for (int transferred = 0; transferred < MAX_TRANSFERS_PER_TICK; transferred++) {
+                WheelTimeout timeout = pendingTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+
+                if (timeout.state.get() == WheelTimeout.STATE_CANCELLED) {
+                    continue;
+                }
+
+                long calculated = timeout.deadline / tickDurationNanos;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            WheelTimeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+    }
+
+    private static final class WheelTimeout implements Timeout {
+
+        private static final int STATE_INIT = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        @NonNull
+        private final TimingWheel timer;
+
+        @NonNull
+        private final Runnable runnable;
+
+        @Nullable
+        private final TaskMode mode;
+
+        @NonNull
+        private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+        private final long deadline;
+
+        private long remainingRounds;
+
+        @Nullable
+        private WheelTimeout next;
+
+        @Nullable
+        private WheelTimeout prev;
+
+        @Nullable
+        private Bucket bucket;
+
+        WheelTimeout(@NonNull TimingWheel timer, @NonNull Runnable runnable, @Nullable TaskMode mode, long deadline) {
+            this.timer = timer;
+            this.runnable = runnable;
+            this.mode = mode;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(STATE_INIT, STATE_CANCELLED)) {
+                return false;
+            }
+
+            timer.activeTimeouts.decrementAndGet();
+            timer.cancelledTimeouts.offer(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+
+        void expire() {
+            if (!state.compareAndSet(STATE_INIT, STATE_EXPIRED)) {
+                return;
+            }
+
+            timer.activeTimeouts.decrementAndGet();
+
+            try {
+                if (mode == null) {
+                    runnable.run();
+                } else {
+                    TaskManager.dispatch(runnable, mode);
+                }
+            } catch (Throwable t) {
+                // Mode-less work runs on the ticker itself; whatever it throws must not end the
+                // thread every other timeout depends on.
+                Logger.E(runnable, t);
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        @Nullable
+        private WheelTimeout head;
+
+        @Nullable
+        private WheelTimeout tail;
+
+        void add(@NonNull WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts() {
+            WheelTimeout timeout = head;
+
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+
+                if (timeout.remainingRounds <= 0L) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+
+                timeout = next;
+            }
+        }
+
+        void remove(@NonNull WheelTimeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+
+            WheelTimeout next = timeout.next;
+
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+
+            if (timeout == head) {
+                if (timeout == tail) {
+                    head = tail = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.peridotapps.nitro.function;
+
+public interface BiConsumer<A, B> {
+    void accept(A first, B second) throws Exception;
+}
@@ -0,0 +1,5 @@
+package com.peridotapps.nitro.function;
+
+public interface BiFunction<A, B, O> {
+    O apply(A first, B second) throws Exception;
+}
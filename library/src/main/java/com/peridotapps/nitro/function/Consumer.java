@@ -0,0 +1,5 @@
+package com.peridotapps.nitro.function;
+
+public interface Consumer<T> {
+    void accept(T value) throws Exception;
+}
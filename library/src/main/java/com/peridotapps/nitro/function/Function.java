@@ -0,0 +1,5 @@
+package com.peridotapps.nitro.function;
+
+public interface Function<I, O> {
+    O apply(I input) throws Exception;
+}
@@ -0,0 +1,5 @@
+package com.peridotapps.nitro.function;
+
+public interface Predicate<T> {
+    boolean test(T value) throws Exception;
+}
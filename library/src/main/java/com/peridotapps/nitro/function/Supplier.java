@@ -0,0 +1,5 @@
+package com.peridotapps.nitro.function;
+
+public interface Supplier<T> {
+    T get() throws Exception;
+}
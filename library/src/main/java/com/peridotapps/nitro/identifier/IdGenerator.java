@@ -0,0 +1,24 @@
+package com.peridotapps.nitro.identifier;
+
+import android.support.annotation.NonNull;
+
+public abstract class IdGenerator {
+
+    private static final int RENDER_RADIX = Character.MAX_RADIX;
+
+    public abstract long nextId();
+
+    @NonNull
+    public final String nextIdString() {
+        return render(nextId());
+    }
+
+    @NonNull
+    public static String render(long id) {
+        return Long.toString(id, RENDER_RADIX);
+    }
+
+    public static long parse(@NonNull String renderedId) {
+        return Long.parseLong(renderedId, RENDER_RADIX);
+    }
+}
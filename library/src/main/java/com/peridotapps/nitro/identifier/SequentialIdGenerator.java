@@ -0,0 +1,24 @@
+package com.peridotapps.nitro.identifier;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class SequentialIdGenerator extends IdGenerator {
+
+    @NonNull
+    private final AtomicLong sequence;
+
+    public SequentialIdGenerator() {
+        this(0L);
+    }
+
+    public SequentialIdGenerator(long initialValue) {
+        this.sequence = new AtomicLong(initialValue);
+    }
+
+    @Override
+    public long nextId() {
+        return sequence.incrementAndGet();
+    }
+}
@@ -0,0 +1,65 @@
+package com.peridotapps.nitro.identifier;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class TimeOrderedIdGenerator extends IdGenerator {
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1L;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1L;
+
+    // 2019-01-01T00:00:00Z, leaving 41 bits of millisecond timestamp for roughly 69 years.
+    public static final long DEFAULT_EPOCH_MILLISECONDS = 1546300800000L;
+
+    @NonNull
+    private final AtomicLong lastState = new AtomicLong(0L);
+
+    private final long epochMilliseconds;
+    private final long nodeId;
+
+    public TimeOrderedIdGenerator() {
+        this(0);
+    }
+
+    public TimeOrderedIdGenerator(int nodeId) {
+        this(nodeId, DEFAULT_EPOCH_MILLISECONDS);
+    }
+
+    public TimeOrderedIdGenerator(int nodeId, long epochMilliseconds) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.epochMilliseconds = epochMilliseconds;
+    }
+
+    // The state word packs (timestamp << SEQUENCE_BITS | sequence). When the sequence overflows
+    // within one millisecond it carries into the timestamp, so ids stay unique and ordered
+    // without ever spinning on the clock.
+    @Override
+    public long nextId() {
+        long now = (System.currentTimeMillis() - epochMilliseconds) << SEQUENCE_BITS;
+
+        for (; ; ) {
+            long last = lastState.get();
+            long next = (now > last) ? now : last + 1L;
+
+            if (lastState.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << TIMESTAMP_SHIFT) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public long getTimestamp(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + epochMilliseconds;
+    }
+
+    public static int getNodeId(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
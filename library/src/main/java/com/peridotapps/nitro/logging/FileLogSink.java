@@ -0,0 +1,328 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Appends log lines to fixed-size segment files mapped into memory. A write is a copy into the
+// mapping, and the page cache keeps it even if the process dies straight afterwards, so nothing
+// is lost to a crash without forcing on every batch. Segments are forced to storage when they
+// are rotated out, on sync(), and on every flush when that is enabled. The unused tail of the
+// active segment stays zero-filled, which is where readers stop.
+public final class FileLogSink implements LogSink {
+
+    private static final int DEFAULT_SEGMENT_SIZE_BYTES = 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE_BYTES = 4 * 1024;
+    private static final int DEFAULT_MAX_SEGMENTS = 8;
+    private static final String DEFAULT_FILE_PREFIX = "nitro-log";
+    private static final String SEGMENT_EXTENSION = ".log";
+    private static final int EXPORT_BUFFER_SIZE = 8 * 1024;
+    private static final long RETRY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5L);
+
+    @NonNull
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @NonNull
+    private final Object lock = new Object();
+
+    @NonNull
+    private final File directory;
+
+    @NonNull
+    private final String filePrefix;
+
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean forceOnFlush;
+
+    @Nullable
+    private final LogSink delegate;
+
+    @Nullable
+    private MappedByteBuffer segmentBuffer = null;
+
+    private long segmentSequence = 0L;
+    private boolean dirty = false;
+    private boolean failed = false;
+    private long retryAtNanos = 0L;
+
+    private FileLogSink(@NonNull Builder builder) {
+        this.directory = builder.directory;
+        this.filePrefix = builder.filePrefix;
+        this.segmentSize = Math.max(MIN_SEGMENT_SIZE_BYTES, builder.segmentSize);
+        this.maxSegments = Math.max(1, builder.maxSegments);
+        this.forceOnFlush = builder.forceOnFlush;
+        this.delegate = builder.delegate;
+    }
+
+    @Override
+    public void write(@NonNull @Logger.LogType String logType, @NonNull String tag, @NonNull String message) {
+        if (delegate != null) {
+            delegate.write(logType, tag, message);
+        }
+
+        append(encode(System.currentTimeMillis(), logType, tag, message));
+    }
+
+    @Override
+    public void write(@NonNull LogEvent event) {
+        if (delegate != null) {
+            delegate.write(event);
+        }
+
+        append(encode(event.getTimestamp(), event.getLogType(), event.getTag(), event.render()));
+    }
+
+    @Override
+    public void flush() {
+        if (delegate != null) {
+            delegate.flush();
+        }
+
+        if (forceOnFlush) {
+            sync();
+        }
+    }
+
+    public void sync() {
+        synchronized (lock) {
+            if (dirty && segmentBuffer != null) {
+                segmentBuffer.force();
+                dirty = false;
+            }
+        }
+    }
+
+    @NonNull
+    public List<File> getSegmentFiles() {
+        File[] files = directory.listFiles();
+        List<File> segments = new ArrayList<>();
+
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (isSegmentFile(file)) {
+                    segments.add(file);
+                }
+            }
+        }
+
+        return segments;
+    }
+
+    // Copies every segment, oldest first, without the zero-filled tails. A segment that is
+    // rotated away while the export runs is skipped rather than failing the whole export.
+    public void export(@NonNull OutputStream out) throws IOException {
+        byte[] chunk = new byte[EXPORT_BUFFER_SIZE];
+
+        for (File segment : getSegmentFiles()) {
+            InputStream in;
+            try {
+                in = new FileInputStream(segment);
+            } catch (FileNotFoundException e) {
+                continue;
+            }
+
+            try {
+                int read;
+                while ((read = in.read(chunk)) > 0) {
+                    int length = indexOfTerminator(chunk, read);
+                    out.write(chunk, 0, length);
+                    if (length < read) {
+                        break;
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        out.flush();
+    }
+
+    private void append(@NonNull byte[] line) {
+        synchronized (lock) {
+            if (failed) {
+                if (System.nanoTime() - retryAtNanos < 0L) {
+                    return;
+                }
+                failed = false;
+            }
+
+            try {
+                MappedByteBuffer buffer = segmentBuffer;
+                if (buffer == null || buffer.remaining() < line.length) {
+                    buffer = rotate();
+                }
+
+                buffer.put(line, 0, Math.min(line.length, buffer.remaining()));
+                dirty = true;
+            } catch (IOException e) {
+                onWriteFailed(e);
+            }
+        }
+    }
+
+    @NonNull
+    private MappedByteBuffer rotate() throws IOException {
+        if (segmentBuffer != null) {
+            segmentBuffer.force();
+            dirty = false;
+        } else {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create log directory " + directory);
+            }
+            segmentSequence = findLastSequence();
+        }
+
+        segmentSequence++;
+        File segment = new File(directory, String.format(Locale.US, "%s-%010d%s", filePrefix, segmentSequence, SEGMENT_EXTENSION));
+
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            segmentBuffer = file.getChannel()
+                    .map(FileChannel.MapMode.READ_WRITE, 0L, segmentSize);
+        } finally {
+            file.close();
+        }
+
+        pruneSegments();
+        return segmentBuffer;
+    }
+
+    private void pruneSegments() {
+        List<File> segments = getSegmentFiles();
+        for (int index = 0; index < segments.size() - maxSegments; index++) {
+            if (!segments.get(index).delete()) {
+                Log.w(Logger.generateLogTag(this), "Unable to delete log segment " + segments.get(index));
+            }
+        }
+    }
+
+    private long findLastSequence() {
+        List<File> segments = getSegmentFiles();
+        if (segments.isEmpty()) {
+            return 0L;
+        }
+
+        String name = segments.get(segments.size() - 1).getName();
+        try {
+            return Long.parseLong(name.substring(filePrefix.length() + 1, name.length() - SEGMENT_EXTENSION.length()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private boolean isSegmentFile(@NonNull File file) {
+        String name = file.getName();
+        return name.startsWith(filePrefix + "-") && name.endsWith(SEGMENT_EXTENSION) && file.isFile();
+    }
+
+    // Logged through logcat directly: reporting the failure through Logger would feed it
+    // straight back into this sink. Storage that is full or unmounted tends to come back, so lines
+    // are dropped only for a while and the next one after that opens a fresh segment.
+    private void onWriteFailed(@NonNull IOException e) {
+        failed = true;
+        retryAtNanos = System.nanoTime() + RETRY_INTERVAL_NANOS;
+        segmentBuffer = null;
+        Log.e(Logger.generateLogTag(this), Log.getStackTraceString(e));
+    }
+
+    // A zero byte marks the end of a segment's contents, so one inside a line is written out as
+    // an escape rather than cutting off everything after it.
+    @NonNull
+    private byte[] encode(long timestamp, @NonNull String logType, @NonNull String tag, @NonNull String message) {
+        String text = timestamp + " " + logType.toUpperCase() + "/" + tag + ": " + message + "\n";
+        if (text.indexOf('\0') >= 0) {
+            text = text.replace("\0", "\\0");
+        }
+        byte[] line = text.getBytes(UTF_8);
+
+        if (line.length > segmentSize) {
+            line = Arrays.copyOf(line, segmentSize);
+            line[segmentSize - 1] = '\n';
+        }
+
+        return line;
+    }
+
+    private static int indexOfTerminator(@NonNull byte[] chunk, int length) {
+        for (int index = 0; index < length; index++) {
+            if (chunk[index] == 0) {
+                return index;
+            }
+        }
+        return length;
+    }
+
+    public static class Builder {
+
+        @NonNull
+        private final File directory;
+
+        @NonNull
+        private String filePrefix = DEFAULT_FILE_PREFIX;
+
+        private int segmentSize = DEFAULT_SEGMENT_SIZE_BYTES;
+        private int maxSegments = DEFAULT_MAX_SEGMENTS;
+        private boolean forceOnFlush = false;
+
+        @Nullable
+        private LogSink delegate = null;
+
+        public Builder(@NonNull File directory) {
+            this.directory = directory;
+        }
+
+        @NonNull
+        public Builder setFilePrefix(@NonNull String filePrefix) {
+            this.filePrefix = filePrefix;
+            return this;
+        }
+
+        @NonNull
+        public Builder setSegmentSize(int segmentSizeInBytes) {
+            this.segmentSize = segmentSizeInBytes;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMaxSegments(int maxSegments) {
+            this.maxSegments = maxSegments;
+            return this;
+        }
+
+        @NonNull
+        public Builder setForceOnFlush(boolean forceOnFlush) {
+            this.forceOnFlush = forceOnFlush;
+            return this;
+        }
+
+        @NonNull
+        public Builder setDelegate(@Nullable LogSink delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        @NonNull
+        public FileLogSink build() {
+            return new FileLogSink(this);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.Arrays;
+
+// A structured log line. Fields are kept in parallel arrays, primitives as raw long bits, so
+// recording them never boxes; nothing is rendered until a sink asks for the text. Events for a
+// disabled level are the shared DISABLED instance, which ignores every call.
+public final class LogEvent {
+
+    public enum FieldType {
+        LONG,
+        DOUBLE,
+        BOOLEAN,
+        STRING,
+        OBJECT
+    }
+
+    private static final int INITIAL_FIELD_CAPACITY = 4;
+
+    @NonNull
+    private static final FieldType[] FIELD_TYPES = FieldType.values();
+
+    @NonNull
+    static final LogEvent DISABLED = new LogEvent(Logger.LogType.VERBOSE, Logger.DEFAULT_LOG_TAG, false);
+
+    @NonNull
+    private final String logType;
+
+    @NonNull
+    private final String tag;
+
+    private final boolean enabled;
+    private final long timestamp;
+
+    @Nullable
+    private String template = null;
+
+    @Nullable
+    private Throwable throwable = null;
+
+    @NonNull
+    private String[] keys = new String[0];
+
+    @NonNull
+    private byte[] types = new byte[0];
+
+    @NonNull
+    private long[] primitives = new long[0];
+
+    @Nullable
+    private Object[] references = null;
+
+    private int fieldCount = 0;
+
+    @Nullable
+    private volatile String rendered = null;
+
+    LogEvent(@NonNull @Logger.LogType String logType, @NonNull String tag, boolean enabled) {
+        this.logType = logType;
+        this.tag = tag;
+        this.enabled = enabled;
+        this.timestamp = enabled ? System.currentTimeMillis() : 0L;
+    }
+
+    @NonNull
+    public LogEvent message(@NonNull String template) {
+        if (enabled) {
+            this.template = template;
+        }
+        return this;
+    }
+
+    @NonNull
+    public LogEvent field(@NonNull String key, long value) {
+        if (enabled) {
+            addField(key, FieldType.LONG, value, null);
+        }
+        return this;
+    }
+
+    @NonNull
+    public LogEvent field(@NonNull String key, double value) {
+        if (enabled) {
+            addField(key, FieldType.DOUBLE, Double.doubleToRawLongBits(value), null);
+        }
+        return this;
+    }
+
+    @NonNull
+    public LogEvent field(@NonNull String key, boolean value) {
+        if (enabled) {
+            addField(key, FieldType.BOOLEAN, value ? 1L : 0L, null);
+        }
+        return this;
+    }
+
+    @NonNull
+    public LogEvent field(@NonNull String key, @Nullable String value) {
+        if (enabled) {
+            addField(key, FieldType.STRING, 0L, value);
+        }
+        return this;
+    }
+
+    @NonNull
+    public LogEvent field(@NonNull String key, @Nullable Object value) {
+        if (enabled) {
+            addField(key, FieldType.OBJECT, 0L, value);
+        }
+        return this;
+    }
+
+    @NonNull
+    public LogEvent throwable(@Nullable Throwable t) {
+        if (enabled) {
+            this.throwable = t;
+        }
+        return this;
+    }
+
+    public void log() {
+        if (enabled) {
+            Logger.logEvent(this);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @NonNull
+    @Logger.LogType
+    public String getLogType() {
+        return logType;
+    }
+
+    @NonNull
+    public String getTag() {
+        return tag;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Nullable
+    public String getTemplate() {
+        return template;
+    }
+
+    @Nullable
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int indexOf(@NonNull String key) {
+        for (int index = 0; index < fieldCount; index++) {
+            if (keys[index].equals(key)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    @NonNull
+    public String getFieldKey(int index) {
+        return keys[checkIndex(index)];
+    }
+
+    @NonNull
+    public FieldType getFieldType(int index) {
+        return FIELD_TYPES[types[checkIndex(index)]];
+    }
+
+    public long getLong(int index) {
+        return primitives[checkIndex(index)];
+    }
+
+    public double getDouble(int index) {
+        return Double.longBitsToDouble(primitives[checkIndex(index)]);
+    }
+
+    public boolean getBoolean(int index) {
+        return primitives[checkIndex(index)] != 0L;
+    }
+
+    @Nullable
+    public Object getValue(int index) {
+        switch (getFieldType(index)) {
+            case LONG:
+                return getLong(index);
+            case DOUBLE:
+                return getDouble(index);
+            case BOOLEAN:
+                return getBoolean(index);
+            default:
+                return (references != null) ? references[index] : null;
+        }
+    }
+
+    // Placeholders written as {key} are replaced with that field's value; fields the template
+    // does not mention follow in key=value form, and a throwable's stack trace comes last.
+    @NonNull
+    public String render() {
+        String text = rendered;
+        if (text != null) {
+            return text;
+        }
+
+        StringBuilder builder = new StringBuilder();
+        boolean[] referenced = new boolean[fieldCount];
+
+        if (template != null) {
+            appendTemplate(builder, template, referenced);
+        }
+
+        for (int index = 0; index < fieldCount; index++) {
+            if (!referenced[index]) {
+                if (builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append(keys[index])
+                        .append('=');
+                appendValue(builder, index);
+            }
+        }
+
+        if (throwable != null) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(Log.getStackTraceString(throwable));
+        }
+
+        text = builder.toString();
+        rendered = text;
+        return text;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return render();
+    }
+
+    private void appendTemplate(@NonNull StringBuilder builder, @NonNull String template, @NonNull boolean[] referenced) {
+        int position = 0;
+        int length = template.length();
+
+        while (position < length) {
+            int open = template.indexOf('{', position);
+            int close = (open >= 0) ? template.indexOf('}', open + 1) : -1;
+
+            if (open < 0 || close < 0) {
+                builder.append(template, position, length);
+                return;
+            }
+
+            int index = indexOf(template.substring(open + 1, close));
+            builder.append(template, position, open);
+
+            if (index >= 0) {
+                appendValue(builder, index);
+                referenced[index] = true;
+            } else {
+                builder.append(template, open, close + 1);
+            }
+
+            position = close + 1;
+        }
+    }
+
+    private void appendValue(@NonNull StringBuilder builder, int index) {
+        switch (FIELD_TYPES[types[index]]) {
+            case LONG:
+                builder.append(primitives[index]);
+                break;
+            case DOUBLE:
+                builder.append(Double.longBitsToDouble(primitives[index]));
+                break;
+            case BOOLEAN:
+                builder.append(primitives[index] != 0L);
+                break;
+            default:
+                builder.append((references != null) ? references[index] : null);
+                break;
+        }
+    }
+
+    private void addField(@NonNull String key, @NonNull FieldType type, long primitive, @Nullable Object reference) {
+        if (fieldCount == keys.length) {
+            int capacity = Math.max(INITIAL_FIELD_CAPACITY, fieldCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            types = Arrays.copyOf(types, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            if (references != null) {
+                references = Arrays.copyOf(references, capacity);
+            }
+        }
+
+        if (reference != null) {
+            if (references == null) {
+                references = new Object[keys.length];
+            }
+            references[fieldCount] = reference;
+        }
+
+        keys[fieldCount] = key;
+        types[fieldCount] = (byte) type.ordinal();
+        primitives[fieldCount] = primitive;
+        fieldCount++;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field index " + index + " is out of range for " + fieldCount + " fields");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,53 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+
+public final class LogLimit {
+
+    private final int sampleRate;
+    private final int permits;
+    private final long periodInMilliseconds;
+    private final boolean perCallSite;
+
+    private LogLimit(int sampleRate, int permits, long periodInMilliseconds, boolean perCallSite) {
+        this.sampleRate = sampleRate;
+        this.permits = permits;
+        this.periodInMilliseconds = periodInMilliseconds;
+        this.perCallSite = perCallSite;
+    }
+
+    @NonNull
+    public static LogLimit sample(int oneInN) {
+        return new LogLimit(Math.max(1, oneInN), 0, 0L, false);
+    }
+
+    @NonNull
+    public static LogLimit rate(int permits, long periodInMilliseconds) {
+        return new LogLimit(0, Math.max(1, permits), Math.max(1L, periodInMilliseconds), false);
+    }
+
+    @NonNull
+    public LogLimit perCallSite() {
+        return new LogLimit(sampleRate, permits, periodInMilliseconds, true);
+    }
+
+    public boolean isSampled() {
+        return sampleRate > 0;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public long getPeriod() {
+        return periodInMilliseconds;
+    }
+
+    public boolean isPerCallSite() {
+        return perCallSite;
+    }
+}
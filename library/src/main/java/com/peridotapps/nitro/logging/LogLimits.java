@@ -0,0 +1,368 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Sampling and rate limits are enforced on the calling thread, before a message is formatted or
+// a ring slot is claimed, so a tight loop that logs costs one map lookup and a counter per call
+// once it is over its limit. What was suppressed is tallied per limiter and reported by the
+// logging thread as one summary line per limiter and interval.
+final class LogLimits {
+
+    static final long SUMMARY_INTERVAL_MILLISECONDS = 1000L;
+
+    // Call sites may be keyed on a format string, so a caller that builds a new one for every line
+    // would otherwise grow the map without bound. Past this many sites a tag falls back to its
+    // shared limiter.
+    private static final int MAX_CALL_SITES_PER_TAG = 256;
+    private static final int MAX_CALL_SITE_DESCRIPTION_LENGTH = 64;
+
+    // Stands in for the frame that called into Logger. It costs a stack trace to resolve, so that
+    // only happens for tags whose limit is kept per call site.
+    @NonNull
+    static final Object CALLER = new Object();
+
+    private static final long SUMMARY_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(SUMMARY_INTERVAL_MILLISECONDS);
+
+    @NonNull
+    private final ConcurrentHashMap<String, LogLimit> tagLimits = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final ConcurrentHashMap<String, TagLimiter> tagLimiters = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final ConcurrentLinkedQueue<TagLimiter> retiredLimiters = new ConcurrentLinkedQueue<>();
+
+    @NonNull
+    private final AtomicLong reportedSuppressedCount = new AtomicLong(0L);
+
+    @Nullable
+    private volatile LogLimit defaultLimit = null;
+
+    private volatile boolean active = false;
+
+    // Bumped on every configuration change. A limiter built from a limit read before the change
+    // can still land in the map after the purge, so one from an older generation is retired on
+    // sight and rebuilt.
+    private volatile int generation = 0;
+
+    private volatile boolean summaryPending = false;
+
+    private long summaryWindowStart = 0L;
+
+    void setLimit(@NonNull String tag, @NonNull LogLimit limit) {
+        synchronized (tagLimits) {
+            tagLimits.put(tag, limit);
+            onLimitsChanged();
+        }
+    }
+
+    void clearLimit(@NonNull String tag) {
+        synchronized (tagLimits) {
+            tagLimits.remove(tag);
+            onLimitsChanged();
+        }
+    }
+
+    void setDefaultLimit(@Nullable LogLimit limit) {
+        synchronized (tagLimits) {
+            defaultLimit = limit;
+            onLimitsChanged();
+        }
+    }
+
+    @Nullable
+    LogLimit getLimit(@NonNull String tag) {
+        LogLimit limit = tagLimits.get(tag);
+        return (limit != null) ? limit : defaultLimit;
+    }
+
+    boolean tryAcquire(@NonNull String tag, @Nullable Object callSite) {
+        if (!active) {
+            return true;
+        }
+
+        TagLimiter tagLimiter;
+        for (; ; ) {
+            int currentGeneration = generation;
+            tagLimiter = tagLimiters.get(tag);
+
+            if (tagLimiter == null) {
+                LogLimit limit = getLimit(tag);
+                if (limit == null) {
+                    return true;
+                }
+
+                TagLimiter created = new TagLimiter(tag, limit, currentGeneration);
+                tagLimiter = tagLimiters.putIfAbsent(tag, created);
+                if (tagLimiter == null) {
+                    tagLimiter = created;
+                }
+            }
+
+            if (tagLimiter.generation == generation) {
+                break;
+            }
+
+            if (tagLimiters.remove(tag, tagLimiter)) {
+                retiredLimiters.offer(tagLimiter);
+            }
+        }
+
+        Limiter limiter = tagLimiter.getLimiter(callSite);
+        if (limiter.tryAcquire()) {
+            return true;
+        }
+
+        // Only the first suppression since a limiter was last reported raises the flag, so a storm
+        // does not write to the shared volatile on every call.
+        if (limiter.suppressedCount.getAndIncrement() == 0L && !summaryPending) {
+            summaryPending = true;
+        }
+        return false;
+    }
+
+    boolean isSummaryPending() {
+        return summaryPending;
+    }
+
+    long getSuppressedCount() {
+        long suppressed = reportedSuppressedCount.get();
+        for (TagLimiter tagLimiter : tagLimiters.values()) {
+            suppressed += tagLimiter.getSuppressedCount();
+        }
+        return suppressed;
+    }
+
+    // Called from the logging thread only. Returns how long it may park before the pending
+    // summary is due, or -1 when nothing has been suppressed.
+    long getNanosUntilSummary(long now) {
+        if (!summaryPending) {
+            return -1L;
+        }
+
+        if (summaryWindowStart == 0L) {
+            return SUMMARY_INTERVAL_NANOS;
+        }
+
+        return Math.max(1L, summaryWindowStart + SUMMARY_INTERVAL_NANOS - now);
+    }
+
+    // Called from the logging thread only. The first suppression opens a window, so a storm
+    // produces its first summary one interval after it starts rather than after its first line.
+    boolean reportSuppressed(@NonNull LogSink sink, long now) {
+        if (!summaryPending) {
+            return false;
+        }
+
+        if (summaryWindowStart == 0L) {
+            summaryWindowStart = now;
+            return false;
+        }
+
+        if (now - summaryWindowStart < SUMMARY_INTERVAL_NANOS) {
+            return false;
+        }
+
+        summaryPending = false;
+        summaryWindowStart = 0L;
+
+        boolean reported = false;
+        for (TagLimiter tagLimiter : tagLimiters.values()) {
+            reported |= tagLimiter.report(sink);
+        }
+
+        TagLimiter retired;
+        while ((retired = retiredLimiters.poll()) != null) {
+            reported |= retired.report(sink);
+        }
+
+        return reported;
+    }
+
+    // Limiters built from the previous configuration are retired rather than dropped so that
+    // whatever they had suppressed still makes it into the next summary.
+    private void onLimitsChanged() {
+        active = defaultLimit != null || !tagLimits.isEmpty();
+        generation++;
+
+        for (String tag : tagLimiters.keySet()) {
+            TagLimiter retired = tagLimiters.remove(tag);
+            if (retired != null) {
+                retiredLimiters.offer(retired);
+            }
+        }
+
+        if (!retiredLimiters.isEmpty()) {
+            summaryPending = true;
+        }
+    }
+
+    @Nullable
+    private static StackTraceElement findCaller() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (!className.startsWith(LogLimits.class.getName()) && !className.equals(LogPipeline.class.getName()) && !className.equals(Logger.class.getName())) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    @NonNull
+    private static String describeCallSite(@NonNull Object callSite) {
+        if (callSite instanceof Class) {
+            return ((Class<?>) callSite).getName();
+        }
+
+        if (callSite instanceof StackTraceElement) {
+            return callSite.toString();
+        }
+
+        String description = String.valueOf(callSite);
+        if (description.length() > MAX_CALL_SITE_DESCRIPTION_LENGTH) {
+            description = description.substring(0, MAX_CALL_SITE_DESCRIPTION_LENGTH) + "...";
+        }
+        return "\"" + description + "\"";
+    }
+
+    private final class TagLimiter {
+
+        @NonNull
+        private final String tag;
+
+        @NonNull
+        private final LogLimit limit;
+
+        @NonNull
+        private final Limiter sharedLimiter;
+
+        @Nullable
+        private final ConcurrentHashMap<Object, Limiter> callSiteLimiters;
+
+        private final int generation;
+
+        TagLimiter(@NonNull String tag, @NonNull LogLimit limit, int generation) {
+            this.tag = tag;
+            this.limit = limit;
+            this.generation = generation;
+            this.sharedLimiter = new Limiter(limit, null);
+            this.callSiteLimiters = limit.isPerCallSite() ? new ConcurrentHashMap<Object, Limiter>() : null;
+        }
+
+        @NonNull
+        Limiter getLimiter(@Nullable Object callSite) {
+            if (callSite == CALLER && callSiteLimiters != null) {
+                callSite = findCaller();
+            }
+
+            if (callSiteLimiters == null || callSite == null) {
+                return sharedLimiter;
+            }
+
+            Limiter limiter = callSiteLimiters.get(callSite);
+            if (limiter == null) {
+                if (callSiteLimiters.size() >= MAX_CALL_SITES_PER_TAG) {
+                    return sharedLimiter;
+                }
+
+                Limiter created = new Limiter(limit, callSite);
+                limiter = callSiteLimiters.putIfAbsent(callSite, created);
+                if (limiter == null) {
+                    limiter = created;
+                }
+            }
+            return limiter;
+        }
+
+        long getSuppressedCount() {
+            long suppressed = sharedLimiter.suppressedCount.get();
+            if (callSiteLimiters != null) {
+                for (Limiter limiter : callSiteLimiters.values()) {
+                    suppressed += limiter.suppressedCount.get();
+                }
+            }
+            return suppressed;
+        }
+
+        boolean report(@NonNull LogSink sink) {
+            boolean reported = report(sink, sharedLimiter);
+            if (callSiteLimiters != null) {
+                for (Limiter limiter : callSiteLimiters.values()) {
+                    reported |= report(sink, limiter);
+                }
+            }
+            return reported;
+        }
+
+        private boolean report(@NonNull LogSink sink, @NonNull Limiter limiter) {
+            long suppressed = limiter.suppressedCount.getAndSet(0L);
+            if (suppressed == 0L) {
+                return false;
+            }
+
+            reportedSuppressedCount.addAndGet(suppressed);
+
+            String message = "Suppressed " + suppressed + " log messages";
+            if (limiter.callSite != null) {
+                message += " from " + describeCallSite(limiter.callSite);
+            }
+            sink.write(Logger.LogType.WARNING, tag, message);
+            return true;
+        }
+    }
+
+    private static final class Limiter {
+
+        @NonNull
+        private final LogLimit limit;
+
+        @Nullable
+        private final Object callSite;
+
+        @NonNull
+        private final AtomicLong callCount = new AtomicLong(0L);
+
+        @NonNull
+        private final AtomicLong suppressedCount = new AtomicLong(0L);
+
+        private double availablePermits = -1D;
+        private long lastRefillNanos = 0L;
+
+        Limiter(@NonNull LogLimit limit, @Nullable Object callSite) {
+            this.limit = limit;
+            this.callSite = callSite;
+        }
+
+        boolean tryAcquire() {
+            if (limit.isSampled()) {
+                return callCount.getAndIncrement() % limit.getSampleRate() == 0L;
+            }
+            return tryAcquirePermit();
+        }
+
+        private synchronized boolean tryAcquirePermit() {
+            long now = System.nanoTime();
+            int capacity = limit.getPermits();
+
+            if (availablePermits < 0D) {
+                availablePermits = capacity;
+            } else {
+                double refill = (double) (now - lastRefillNanos) * capacity / TimeUnit.MILLISECONDS.toNanos(limit.getPeriod());
+                availablePermits = Math.min(capacity, availablePermits + refill);
+            }
+            lastRefillNanos = now;
+
+            if (availablePermits >= 1D) {
+                availablePermits -= 1D;
+                return true;
+            }
+            return false;
+        }
+    }
+}
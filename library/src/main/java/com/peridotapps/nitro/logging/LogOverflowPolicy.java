@@ -0,0 +1,7 @@
+package com.peridotapps.nitro.logging;
+
+public enum LogOverflowPolicy {
+    DROP,
+    BLOCK,
+    WRITE_THROUGH
+}
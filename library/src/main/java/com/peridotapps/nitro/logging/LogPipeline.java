@@ -0,0 +1,215 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Log lines are handed to one dedicated consumer thread through the ring, so they keep the
+// order in which they were claimed and never queue behind, or compete with, task work. The
+// consumer writes in batches, flushes the sink once per batch and parks when there is nothing
+// left to write. While anything is being suppressed by a log limit it parks with a timeout
+// instead, so that the summary goes out on time even if nothing else is logged.
+final class LogPipeline implements Runnable {
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    @NonNull
+    private final LogRingBuffer ring;
+
+    @NonNull
+    private final Thread consumerThread;
+
+    @NonNull
+    private final LogLimits limits;
+
+    @NonNull
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    @NonNull
+    private final AtomicLong droppedCount = new AtomicLong(0L);
+
+    @NonNull
+    private volatile LogSink sink = new LogcatSink();
+
+    @NonNull
+    private volatile LogOverflowPolicy overflowPolicy = LogOverflowPolicy.DROP;
+
+    private volatile boolean consumerParked = false;
+
+    private volatile boolean consumerParkedIndefinitely = false;
+
+    private volatile boolean consumerStopped = false;
+
+    private long reportedDroppedCount = 0L;
+
+    LogPipeline(int capacity, @NonNull LogLimits limits) {
+        this.ring = new LogRingBuffer(capacity);
+        this.limits = limits;
+        this.consumerThread = new Thread(this, "nitro-logger");
+        this.consumerThread.setDaemon(true);
+    }
+
+    void log(@NonNull String logType, @NonNull String tag, @NonNull String message) {
+        start();
+
+        if (!ring.offer(logType, tag, message)) {
+            onOverflow(logType, tag, message);
+        }
+
+        if (consumerParked) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    void log(@NonNull LogEvent event) {
+        start();
+
+        if (!ring.offer(event)) {
+            onOverflow(event);
+        }
+
+        if (consumerParked) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    boolean tryAcquire(@NonNull String tag, @Nullable Object callSite) {
+        if (limits.tryAcquire(tag, callSite)) {
+            return true;
+        }
+
+        if (consumerParkedIndefinitely) {
+            start();
+            LockSupport.unpark(consumerThread);
+        }
+        return false;
+    }
+
+    void setSink(@NonNull LogSink sink) {
+        this.sink = sink;
+    }
+
+    @NonNull
+    LogSink getSink() {
+        return sink;
+    }
+
+    void setOverflowPolicy(@NonNull LogOverflowPolicy policy) {
+        this.overflowPolicy = policy;
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    // A sink may throw anything, including Errors, and the consumer has to outlive it: every line
+    // logged afterwards depends on this thread. Should it die regardless, BLOCK stops waiting on it.
+    @Override
+    public void run() {
+        try {
+            for (; ; ) {
+                LogSink currentSink = sink;
+                int written = 0;
+
+                try {
+                    while (written < MAX_BATCH_SIZE && ring.poll(currentSink)) {
+                        written++;
+                    }
+
+                    if (written > 0) {
+                        reportDroppedLines(currentSink);
+                    }
+
+                    if (limits.reportSuppressed(currentSink, System.nanoTime()) || written > 0) {
+                        currentSink.flush();
+                        continue;
+                    }
+                } catch (Throwable e) {
+                    Log.e(Logger.generateLogTag(this), Log.getStackTraceString(e));
+                    continue;
+                }
+
+                consumerParked = true;
+                long summaryDelay = limits.getNanosUntilSummary(System.nanoTime());
+                if (summaryDelay < 0L) {
+                    consumerParkedIndefinitely = true;
+                    if (ring.isEmpty() && !limits.isSummaryPending()) {
+                        LockSupport.park(this);
+                    }
+                    consumerParkedIndefinitely = false;
+                } else if (ring.isEmpty()) {
+                    LockSupport.parkNanos(this, summaryDelay);
+                }
+                consumerParked = false;
+            }
+        } finally {
+            consumerStopped = true;
+        }
+    }
+
+    private void start() {
+        if (!started.get() && started.compareAndSet(false, true)) {
+            consumerThread.start();
+        }
+    }
+
+    private void onOverflow(@NonNull String logType, @NonNull String tag, @NonNull String message) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                do {
+                    if (consumerStopped) {
+                        droppedCount.incrementAndGet();
+                        break;
+                    }
+                    LockSupport.unpark(consumerThread);
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                } while (!ring.offer(logType, tag, message));
+                break;
+            case WRITE_THROUGH:
+                sink.write(logType, tag, message);
+                break;
+            case DROP:
+            default:
+                droppedCount.incrementAndGet();
+                break;
+        }
+    }
+
+    private void onOverflow(@NonNull LogEvent event) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                do {
+                    if (consumerStopped) {
+                        droppedCount.incrementAndGet();
+                        break;
+                    }
+                    LockSupport.unpark(consumerThread);
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                } while (!ring.offer(event));
+                break;
+            case WRITE_THROUGH:
+                sink.write(event);
+                break;
+            case DROP:
+            default:
+                droppedCount.incrementAndGet();
+                break;
+        }
+    }
+
+    private void reportDroppedLines(@NonNull LogSink currentSink) {
+        long dropped = droppedCount.get();
+        if (dropped != reportedDroppedCount) {
+            currentSink.write(Logger.LogType.WARNING, Logger.generateLogTag(Logger.class), (dropped - reportedDroppedCount) + " log lines were dropped because the log buffer was full");
+            reportedDroppedCount = dropped;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A bounded multi-producer, single-consumer ring. Producers claim a position with one CAS and
+// publish the slot by advancing its sequence; the consumer reads a slot once its sequence shows
+// it was published and hands it back by moving the sequence a full lap ahead. Slots are
+// allocated once, so logging a line allocates nothing beyond the message itself.
+final class LogRingBuffer {
+
+    @NonNull
+    private final Entry[] entries;
+
+    @NonNull
+    private final AtomicLongArray sequences;
+
+    @NonNull
+    private final AtomicLong producerPosition = new AtomicLong(0L);
+
+    private final int mask;
+
+    private long consumerPosition = 0L;
+
+    LogRingBuffer(int requestedCapacity) {
+        int capacity = 1;
+        while (capacity < requestedCapacity) {
+            capacity <<= 1;
+        }
+
+        this.entries = new Entry[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+
+        for (int index = 0; index < capacity; index++) {
+            entries[index] = new Entry();
+            sequences.set(index, index);
+        }
+    }
+
+    boolean offer(@NonNull String logType, @NonNull String tag, @NonNull String message) {
+        return offer(logType, tag, message, null);
+    }
+
+    boolean offer(@NonNull LogEvent event) {
+        return offer(null, null, null, event);
+    }
+
+    private boolean offer(@Nullable String logType, @Nullable String tag, @Nullable String message, @Nullable LogEvent event) {
+        for (; ; ) {
+            long position = producerPosition.get();
+            int index = (int) (position & mask);
+            long available = sequences.get(index) - position;
+
+            if (available < 0L) {
+                return false;
+            }
+
+            if (available == 0L && producerPosition.compareAndSet(position, position + 1L)) {
+                Entry entry = entries[index];
+                entry.logType = logType;
+                entry.tag = tag;
+                entry.message = message;
+                entry.event = event;
+                sequences.set(index, position + 1L);
+                return true;
+            }
+        }
+    }
+
+    // Consumer thread only.
+    boolean poll(@NonNull LogSink sink) {
+        long position = consumerPosition;
+        int index = (int) (position & mask);
+
+        if (sequences.get(index) != position + 1L) {
+            return false;
+        }
+
+        Entry entry = entries[index];
+        String logType = entry.logType;
+        String tag = entry.tag;
+        String message = entry.message;
+        LogEvent event = entry.event;
+        entry.logType = null;
+        entry.tag = null;
+        entry.message = null;
+        entry.event = null;
+
+        sequences.set(index, position + entries.length);
+        consumerPosition = position + 1L;
+
+        if (event != null) {
+            sink.write(event);
+        } else {
+            sink.write(logType, tag, message);
+        }
+        return true;
+    }
+
+    // Consumer thread only.
+    boolean isEmpty() {
+        return sequences.get((int) (consumerPosition & mask)) != consumerPosition + 1L;
+    }
+
+    private static final class Entry {
+
+        @Nullable
+        String logType;
+
+        @Nullable
+        String tag;
+
+        @Nullable
+        String message;
+
+        @Nullable
+        LogEvent event;
+    }
+}
@@ -0,0 +1,16 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+
+public interface LogSink {
+
+    void write(@NonNull @Logger.LogType String logType, @NonNull String tag, @NonNull String message);
+
+    default void write(@NonNull LogEvent event) {
+        write(event.getLogType(), event.getTag(), event.render());
+    }
+
+    default void flush() {
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+final class LogcatSink implements LogSink {
+
+    @Override
+    public void write(@NonNull @Logger.LogType String logType, @NonNull String tag, @NonNull String message) {
+        switch (logType.toLowerCase()) {
+            case Logger.LogType.DEBUG:
+                Log.d(tag, message);
+                break;
+            case Logger.LogType.EXCEPTION:
+                Log.e(tag, message);
+                break;
+            case Logger.LogType.INFORMATION:
+                Log.i(tag, message);
+                break;
+            case Logger.LogType.WARNING:
+                Log.w(tag, message);
+                break;
+            case Logger.LogType.WHAT_THE_F:
+                Log.wtf(tag, message);
+                break;
+            default:
+                Log.v(tag, message);
+                break;
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.peridotapps.nitro.logging;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
 import android.util.Log;
 
-import com.peridotapps.nitro.concurrent.task.RunnableTask;
+import com.peridotapps.nitro.function.Supplier;
 
 import java.lang.annotation.Documented;
 import java.lang.annotation.Target;
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.LOCAL_VARIABLE;
@@ -21,9 +26,126 @@ public final class Logger {
 
     public static final String DEFAULT_LOG_TAG = "<unknown>";
 
+    private static final int RANK_VERBOSE = 0;
+    private static final int RANK_DEBUG = 1;
+    private static final int RANK_INFORMATION = 2;
+    private static final int RANK_WARNING = 3;
+    private static final int RANK_EXCEPTION = 4;
+    private static final int RANK_WHAT_THE_F = 5;
+
+    @NonNull
+    private static final LogLimits logLimits = new LogLimits();
+
+    @NonNull
+    private static final LogPipeline logPipeline = new LogPipeline(LogPipeline.DEFAULT_CAPACITY, logLimits);
+
+    @NonNull
+    private static final ConcurrentHashMap<Class<?>, String> classLogTags = new ConcurrentHashMap<>();
+
+    @NonNull
+    private static final ConcurrentHashMap<String, Integer> tagMinimumRanks = new ConcurrentHashMap<>();
+
+    private static volatile int minimumRank = RANK_VERBOSE;
+
+    // The lowest level any tag would accept. A call below it is rejected with a single volatile
+    // read, before a tag is resolved (which for the tag-less overloads means capturing a stack
+    // trace) or a message is built.
+    private static volatile int lowestEnabledRank = RANK_VERBOSE;
+
+    public static void setLogSink(@NonNull LogSink sink) {
+        logPipeline.setSink(sink);
+    }
+
+    @NonNull
+    public static LogSink getLogSink() {
+        return logPipeline.getSink();
+    }
+
+    public static void setOverflowPolicy(@NonNull LogOverflowPolicy policy) {
+        logPipeline.setOverflowPolicy(policy);
+    }
+
+    public static long getDroppedLogCount() {
+        return logPipeline.getDroppedCount();
+    }
+
+    public static void setMinimumLogType(@NonNull @LogType String logType) {
+        synchronized (tagMinimumRanks) {
+            minimumRank = rankOf(logType);
+            updateLowestEnabledRank();
+        }
+    }
+
+    public static void setMinimumLogType(@NonNull String tag, @NonNull @LogType String logType) {
+        synchronized (tagMinimumRanks) {
+            tagMinimumRanks.put(tag, rankOf(logType));
+            updateLowestEnabledRank();
+        }
+    }
+
+    public static void clearMinimumLogType(@NonNull String tag) {
+        synchronized (tagMinimumRanks) {
+            tagMinimumRanks.remove(tag);
+            updateLowestEnabledRank();
+        }
+    }
+
+    public static void setLogLimit(@NonNull String tag, @NonNull LogLimit limit) {
+        logLimits.setLimit(tag, limit);
+    }
+
+    public static void setDefaultLogLimit(@Nullable LogLimit limit) {
+        logLimits.setDefaultLimit(limit);
+    }
+
+    public static void clearLogLimit(@NonNull String tag) {
+        logLimits.clearLimit(tag);
+    }
+
+    @Nullable
+    public static LogLimit getLogLimit(@NonNull String tag) {
+        return logLimits.getLimit(tag);
+    }
+
+    public static long getSuppressedLogCount() {
+        return logLimits.getSuppressedCount();
+    }
+
+    // Events are limited when they are created, before any field is added, so per call site
+    // limits fall back to the tag's shared limiter for them.
+    @NonNull
+    public static LogEvent event(@NonNull String tag, @NonNull @LogType String logType) {
+        return shouldLog(tag, logType, null) ? new LogEvent(logType, tag, true) : LogEvent.DISABLED;
+    }
+
+    @NonNull
+    public static LogEvent event(@NonNull Class<?> type, @NonNull @LogType String logType) {
+        return isEnabled(logType) ? event(generateLogTag(type), logType) : LogEvent.DISABLED;
+    }
+
+    public static boolean isLoggable(@NonNull String tag, @NonNull @LogType String logType) {
+        int rank = rankOf(logType);
+
+        if (rank < lowestEnabledRank) {
+            return false;
+        }
+
+        if (tagMinimumRanks.isEmpty()) {
+            return rank >= minimumRank;
+        }
+
+        Integer tagRank = tagMinimumRanks.get(tag);
+        return rank >= ((tagRank != null) ? tagRank : minimumRank);
+    }
+
     @NonNull
     public static String generateLogTag(@NonNull Class<?> type) {
-        return type.getSimpleName();
+        String tag = classLogTags.get(type);
+        if (tag == null) {
+            tag = type.getSimpleName();
+            classLogTags.put(type, tag);
+        }
+        return tag;
     }
 
     @NonNull
@@ -31,144 +153,383 @@ public final class Logger {
         return generateLogTag(obj.getClass());
     }
 
+    // getStackTrace() copies the whole trace on every call, so it is read once.
     @NonNull
     public static String generateLogTag(@NonNull Throwable t) {
-        if (t.getStackTrace().length > 1) {
-            return t.getStackTrace()[1].getClassName();
+        StackTraceElement[] stackTrace = t.getStackTrace();
+        if (stackTrace.length > 1) {
+            return stackTrace[1].getClassName();
         }
         return DEFAULT_LOG_TAG;
     }
 
     public static void E(@NonNull Throwable t) {
-        E(generateLogTag(t), t);
+        if (isEnabled(LogType.EXCEPTION)) {
+            E(generateLogTag(t), t);
+        }
     }
 
     public static void E(@NonNull String tag, @NonNull Throwable t) {
-        logMessage(tag, Log.getStackTraceString(t), LogType.EXCEPTION);
+        if (shouldLog(tag, LogType.EXCEPTION, t.getClass())) {
+            logMessage(tag, Log.getStackTraceString(t), LogType.EXCEPTION);
+        }
     }
 
     public static void E(@NonNull Class<?> type, @NonNull Throwable t) {
-        E(generateLogTag(type), t);
+        if (isEnabled(LogType.EXCEPTION)) {
+            E(generateLogTag(type), t);
+        }
     }
 
     public static void E(@NonNull Object obj, @NonNull Throwable t) {
-        E(generateLogTag(obj), t);
+        if (isEnabled(LogType.EXCEPTION)) {
+            E(generateLogTag(obj), t);
+        }
+    }
+
+    public static void E(@NonNull String tag, @NonNull Supplier<String> message) {
+        if (shouldLog(tag, LogType.EXCEPTION, message.getClass())) {
+            logMessage(tag, resolveMessage(message), LogType.EXCEPTION);
+        }
+    }
+
+    public static void E(@NonNull Class<?> type, @NonNull Supplier<String> message) {
+        if (isEnabled(LogType.EXCEPTION)) {
+            E(generateLogTag(type), message);
+        }
+    }
+
+    public static void E(@NonNull String tag, @NonNull String format, @Nullable Object... args) {
+        if (shouldLog(tag, LogType.EXCEPTION, format)) {
+            logMessage(tag, formatMessage(format, args), LogType.EXCEPTION);
+        }
+    }
+
+    public static void E(@NonNull Class<?> type, @NonNull String format, @Nullable Object... args) {
+        if (isEnabled(LogType.EXCEPTION)) {
+            E(generateLogTag(type), format, args);
+        }
     }
 
     public static void D(@NonNull String message) {
-        D(generateLogTag(new Throwable()), message);
+        if (isEnabled(LogType.DEBUG)) {
+            logFromCaller(new Throwable(), message, LogType.DEBUG);
+        }
     }
 
     public static void D(@NonNull String tag, @NonNull String message) {
-        logMessage(tag, message, LogType.DEBUG);
+        if (shouldLog(tag, LogType.DEBUG, LogLimits.CALLER)) {
+            logMessage(tag, message, LogType.DEBUG);
+        }
     }
 
     public static void D(@NonNull Class<?> type, @NonNull String message) {
-        D(generateLogTag(type), message);
+        if (isEnabled(LogType.DEBUG)) {
+            D(generateLogTag(type), message);
+        }
     }
 
     public static void D(@NonNull Object obj, @NonNull String message) {
-        D(generateLogTag(obj), message);
+        if (isEnabled(LogType.DEBUG)) {
+            D(generateLogTag(obj), message);
+        }
+    }
+
+    public static void D(@NonNull String tag, @NonNull Supplier<String> message) {
+        if (shouldLog(tag, LogType.DEBUG, message.getClass())) {
+            logMessage(tag, resolveMessage(message), LogType.DEBUG);
+        }
+    }
+
+    public static void D(@NonNull Class<?> type, @NonNull Supplier<String> message) {
+        if (isEnabled(LogType.DEBUG)) {
+            D(generateLogTag(type), message);
+        }
+    }
+
+    public static void D(@NonNull String tag, @NonNull String format, @Nullable Object... args) {
+        if (shouldLog(tag, LogType.DEBUG, format)) {
+            logMessage(tag, formatMessage(format, args), LogType.DEBUG);
+        }
+    }
+
+    public static void D(@NonNull Class<?> type, @NonNull String format, @Nullable Object... args) {
+        if (isEnabled(LogType.DEBUG)) {
+            D(generateLogTag(type), format, args);
+        }
     }
 
     public static void I(@NonNull String message) {
-        I(generateLogTag(new Throwable()), message);
+        if (isEnabled(LogType.INFORMATION)) {
+            logFromCaller(new Throwable(), message, LogType.INFORMATION);
+        }
     }
 
     public static void I(@NonNull String tag, @NonNull String message) {
-        logMessage(tag, message, LogType.INFORMATION);
+        if (shouldLog(tag, LogType.INFORMATION, LogLimits.CALLER)) {
+            logMessage(tag, message, LogType.INFORMATION);
+        }
     }
 
     public static void I(@NonNull Class<?> type, @NonNull String message) {
-        I(generateLogTag(type), message);
+        if (isEnabled(LogType.INFORMATION)) {
+            I(generateLogTag(type), message);
+        }
     }
 
     public static void I(@NonNull Object obj, @NonNull String message) {
-        I(generateLogTag(obj), message);
+        if (isEnabled(LogType.INFORMATION)) {
+            I(generateLogTag(obj), message);
+        }
+    }
+
+    public static void I(@NonNull String tag, @NonNull Supplier<String> message) {
+        if (shouldLog(tag, LogType.INFORMATION, message.getClass())) {
+            logMessage(tag, resolveMessage(message), LogType.INFORMATION);
+        }
+    }
+
+    public static void I(@NonNull Class<?> type, @NonNull Supplier<String> message) {
+        if (isEnabled(LogType.INFORMATION)) {
+            I(generateLogTag(type), message);
+        }
+    }
+
+    public static void I(@NonNull String tag, @NonNull String format, @Nullable Object... args) {
+        if (shouldLog(tag, LogType.INFORMATION, format)) {
+            logMessage(tag, formatMessage(format, args), LogType.INFORMATION);
+        }
+    }
+
+    public static void I(@NonNull Class<?> type, @NonNull String format, @Nullable Object... args) {
+        if (isEnabled(LogType.INFORMATION)) {
+            I(generateLogTag(type), format, args);
+        }
     }
 
     public static void W(@NonNull String message) {
-        W(generateLogTag(new Throwable()), message);
+        if (isEnabled(LogType.WARNING)) {
+            logFromCaller(new Throwable(), message, LogType.WARNING);
+        }
     }
 
     public static void W(@NonNull String tag, @NonNull String message) {
-        logMessage(tag, message, LogType.WARNING);
+        if (shouldLog(tag, LogType.WARNING, LogLimits.CALLER)) {
+            logMessage(tag, message, LogType.WARNING);
+        }
     }
 
     public static void W(@NonNull Class<?> type, @NonNull String message) {
-        W(generateLogTag(type), message);
+        if (isEnabled(LogType.WARNING)) {
+            W(generateLogTag(type), message);
+        }
     }
 
     public static void W(@NonNull Object obj, @NonNull String message) {
-        W(generateLogTag(obj), message);
+        if (isEnabled(LogType.WARNING)) {
+            W(generateLogTag(obj), message);
+        }
+    }
+
+    public static void W(@NonNull String tag, @NonNull Supplier<String> message) {
+        if (shouldLog(tag, LogType.WARNING, message.getClass())) {
+            logMessage(tag, resolveMessage(message), LogType.WARNING);
+        }
+    }
+
+    public static void W(@NonNull Class<?> type, @NonNull Supplier<String> message) {
+        if (isEnabled(LogType.WARNING)) {
+            W(generateLogTag(type), message);
+        }
+    }
+
+    public static void W(@NonNull String tag, @NonNull String format, @Nullable Object... args) {
+        if (shouldLog(tag, LogType.WARNING, format)) {
+            logMessage(tag, formatMessage(format, args), LogType.WARNING);
+        }
+    }
+
+    public static void W(@NonNull Class<?> type, @NonNull String format, @Nullable Object... args) {
+        if (isEnabled(LogType.WARNING)) {
+            W(generateLogTag(type), format, args);
+        }
     }
 
     public static void V(@NonNull String message) {
-        V(generateLogTag(new Throwable()), message);
+        if (isEnabled(LogType.VERBOSE)) {
+            logFromCaller(new Throwable(), message, LogType.VERBOSE);
+        }
     }
 
     public static void V(@NonNull String tag, @NonNull String message) {
-        logMessage(tag, message, LogType.VERBOSE);
+        if (shouldLog(tag, LogType.VERBOSE, LogLimits.CALLER)) {
+            logMessage(tag, message, LogType.VERBOSE);
+        }
     }
 
     public static void V(@NonNull Class<?> type, @NonNull String message) {
-        V(generateLogTag(type), message);
+        if (isEnabled(LogType.VERBOSE)) {
+            V(generateLogTag(type), message);
+        }
     }
 
     public static void V(@NonNull Object obj, @NonNull String message) {
-        V(generateLogTag(obj), message);
+        if (isEnabled(LogType.VERBOSE)) {
+            V(generateLogTag(obj), message);
+        }
+    }
+
+    public static void V(@NonNull String tag, @NonNull Supplier<String> message) {
+        if (shouldLog(tag, LogType.VERBOSE, message.getClass())) {
+            logMessage(tag, resolveMessage(message), LogType.VERBOSE);
+        }
+    }
+
+    public static void V(@NonNull Class<?> type, @NonNull Supplier<String> message) {
+        if (isEnabled(LogType.VERBOSE)) {
+            V(generateLogTag(type), message);
+        }
+    }
+
+    public static void V(@NonNull String tag, @NonNull String format, @Nullable Object... args) {
+        if (shouldLog(tag, LogType.VERBOSE, format)) {
+            logMessage(tag, formatMessage(format, args), LogType.VERBOSE);
+        }
+    }
+
+    public static void V(@NonNull Class<?> type, @NonNull String format, @Nullable Object... args) {
+        if (isEnabled(LogType.VERBOSE)) {
+            V(generateLogTag(type), format, args);
+        }
     }
 
     public static void WTF(@NonNull String message) {
-        WTF(generateLogTag(new Throwable()), message);
+        if (isEnabled(LogType.WHAT_THE_F)) {
+            logFromCaller(new Throwable(), message, LogType.WHAT_THE_F);
+        }
     }
 
     public static void WTF(@NonNull String tag, @NonNull String message) {
-        logMessage(tag, message, LogType.WHAT_THE_F);
+        if (shouldLog(tag, LogType.WHAT_THE_F, LogLimits.CALLER)) {
+            logMessage(tag, message, LogType.WHAT_THE_F);
+        }
     }
 
     public static void WTF(@NonNull Class<?> type, @NonNull String message) {
-        WTF(generateLogTag(type), message);
+        if (isEnabled(LogType.WHAT_THE_F)) {
+            WTF(generateLogTag(type), message);
+        }
     }
 
     public static void WTF(@NonNull Object obj, @NonNull String message) {
-        WTF(generateLogTag(obj), message);
+        if (isEnabled(LogType.WHAT_THE_F)) {
+            WTF(generateLogTag(obj), message);
+        }
+    }
+
+    public static void WTF(@NonNull String tag, @NonNull Supplier<String> message) {
+        if (shouldLog(tag, LogType.WHAT_THE_F, message.getClass())) {
+            logMessage(tag, resolveMessage(message), LogType.WHAT_THE_F);
+        }
+    }
+
+    public static void WTF(@NonNull Class<?> type, @NonNull Supplier<String> message) {
+        if (isEnabled(LogType.WHAT_THE_F)) {
+            WTF(generateLogTag(type), message);
+        }
+    }
+
+    public static void WTF(@NonNull String tag, @NonNull String format, @Nullable Object... args) {
+        if (shouldLog(tag, LogType.WHAT_THE_F, format)) {
+            logMessage(tag, formatMessage(format, args), LogType.WHAT_THE_F);
+        }
+    }
+
+    public static void WTF(@NonNull Class<?> type, @NonNull String format, @Nullable Object... args) {
+        if (isEnabled(LogType.WHAT_THE_F)) {
+            WTF(generateLogTag(type), format, args);
+        }
+    }
+
+    // The tag-less overloads pay for one stack trace whenever their level is enabled: there is no
+    // cheaper way to find the caller on every API level this supports. The caller's frame then
+    // serves as both the tag and the call site its limit is kept under.
+    private static void logFromCaller(@NonNull Throwable stack, @NonNull String message, @NonNull @LogType String logType) {
+        StackTraceElement[] stackTrace = stack.getStackTrace();
+        StackTraceElement caller = (stackTrace.length > 1) ? stackTrace[1] : null;
+        String tag = (caller != null) ? caller.getClassName() : DEFAULT_LOG_TAG;
+
+        if (shouldLog(tag, logType, (caller != null) ? caller : LogLimits.CALLER)) {
+            logMessage(tag, message, logType);
+        }
     }
 
     private static void logMessage(@NonNull String tag, @NonNull String message, @NonNull @LogType String logType) {
-        getLogMessageRunnable(tag, message, logType).execute();
+        logPipeline.log(logType, tag, message);
+    }
+
+    static void logEvent(@NonNull LogEvent event) {
+        logPipeline.log(event);
+    }
+
+    // A lambda compiles to one class per call site, so the supplier's class identifies where it
+    // was logged from, and a format string stands in for the call site otherwise. Plain messages
+    // are usually built per line, so they are limited by the frame that logged them instead.
+    private static boolean shouldLog(@NonNull String tag, @NonNull @LogType String logType, @Nullable Object callSite) {
+        return isLoggable(tag, logType) && logPipeline.tryAcquire(tag, callSite);
+    }
+
+    private static boolean isEnabled(@NonNull @LogType String logType) {
+        return rankOf(logType) >= lowestEnabledRank;
     }
 
     @NonNull
-    private static RunnableTask getLogMessageRunnable(@NonNull String tag, @NonNull String message, @NonNull @LogType String logType) {
-        return new RunnableTask() {
-            @Override
-            public void onRun() throws Exception {
-                writeToLog(logType, tag, message);
-            }
-        };
+    private static String resolveMessage(@NonNull Supplier<String> message) {
+        try {
+            return String.valueOf(message.get());
+        } catch (Exception e) {
+            return "Unable to build log message: " + e;
+        }
     }
 
-    private static void writeToLog(@LogType @NonNull String logType, @NonNull String tag, @NonNull String message) {
-        switch (logType.toLowerCase()) {
+    @NonNull
+    private static String formatMessage(@NonNull String format, @Nullable Object... args) {
+        if (args == null || args.length == 0) {
+            return format;
+        }
+
+        try {
+            return String.format(Locale.US, format, args);
+        } catch (IllegalFormatException e) {
+            return format + " " + Arrays.toString(args);
+        }
+    }
+
+    private static void updateLowestEnabledRank() {
+        int lowest = minimumRank;
+        for (Integer rank : tagMinimumRanks.values()) {
+            lowest = Math.min(lowest, rank);
+        }
+        lowestEnabledRank = lowest;
+    }
+
+    private static int rankOf(@NonNull @LogType String logType) {
+        switch (logType) {
+            case LogType.VERBOSE:
+                return RANK_VERBOSE;
             case LogType.DEBUG:
-                Log.d(tag, message);
-                break;
-            case LogType.EXCEPTION:
-                Log.e(tag, message);
-                break;
+                return RANK_DEBUG;
             case LogType.INFORMATION:
-                Log.i(tag, message);
-                break;
+                return RANK_INFORMATION;
             case LogType.WARNING:
-                Log.w(tag, message);
-                break;
+                return RANK_WARNING;
+            case LogType.EXCEPTION:
+                return RANK_EXCEPTION;
             case LogType.WHAT_THE_F:
-                Log.wtf(tag, message);
-                break;
+                return RANK_WHAT_THE_F;
             default:
-                Log.v(tag, message);
-                break;
+                String normalised = logType.toLowerCase();
+                return normalised.equals(logType) ? RANK_VERBOSE : rankOf(normalised);
         }
     }
 
@@ -0,0 +1,64 @@
+package com.peridotapps.nitro.logging;
+
+import android.support.annotation.NonNull;
+
+import com.peridotapps.nitro.function.Predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the most recent events in memory with their fields intact, for in-app diagnostics and
+// tests. Plain string lines are kept as field-less events so everything can be queried alike.
+public final class MemoryLogSink implements LogSink {
+
+    @NonNull
+    private final LogEvent[] events;
+
+    private int next = 0;
+    private int size = 0;
+
+    public MemoryLogSink(int capacity) {
+        this.events = new LogEvent[Math.max(1, capacity)];
+    }
+
+    @Override
+    public void write(@NonNull @Logger.LogType String logType, @NonNull String tag, @NonNull String message) {
+        write(new LogEvent(logType, tag, true).message(message));
+    }
+
+    @Override
+    public synchronized void write(@NonNull LogEvent event) {
+        events[next] = event;
+        next = (next + 1) % events.length;
+        size = Math.min(size + 1, events.length);
+    }
+
+    @NonNull
+    public synchronized List<LogEvent> getEvents() {
+        List<LogEvent> snapshot = new ArrayList<>(size);
+        int first = (next - size + events.length) % events.length;
+        for (int offset = 0; offset < size; offset++) {
+            snapshot.add(events[(first + offset) % events.length]);
+        }
+        return snapshot;
+    }
+
+    @NonNull
+    public List<LogEvent> getEvents(@NonNull Predicate<LogEvent> filter) throws Exception {
+        List<LogEvent> matches = new ArrayList<>();
+        for (LogEvent event : getEvents()) {
+            if (filter.test(event)) {
+                matches.add(event);
+            }
+        }
+        return matches;
+    }
+
+    public synchronized void clear() {
+        for (int index = 0; index < events.length; index++) {
+            events[index] = null;
+        }
+        next = 0;
+        size = 0;
+    }
+}